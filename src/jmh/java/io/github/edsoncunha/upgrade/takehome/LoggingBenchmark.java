@@ -0,0 +1,58 @@
+package io.github.edsoncunha.upgrade.takehome;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URISyntaxException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency seen by request threads logging a line per availability search, with every event written by the calling
+ * thread (sync) or handed over to the async loggers of the production configuration (async). Several threads log at
+ * once, as requests would under load, and the sampled percentiles show what the callers wait for.
+ * <p>
+ * {@link #guardedDebug()} is the cost left on the hot path once the statement is demoted to a guarded DEBUG.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(8)
+public class LoggingBenchmark {
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 2);
+    private static final LocalDate LAST_DAY = FIRST_DAY.plusDays(30);
+
+    @Param({"sync", "async"})
+    public String logging;
+
+    private LoggerContext context;
+    private Logger log;
+
+    @Setup
+    public void setUp() throws URISyntaxException {
+        // a context of its own, so the configuration under test doesn't depend on how log4j was initialized
+        context = new LoggerContext("logging-benchmark-" + logging, null,
+                getClass().getResource("/log4j2-" + logging + "-benchmark.xml").toURI());
+        context.start();
+
+        log = context.getLogger(LoggingBenchmark.class.getName());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.stop();
+    }
+
+    @Benchmark
+    public void info() {
+        log.info("Searching availability between {} and {}", FIRST_DAY, LAST_DAY);
+    }
+
+    @Benchmark
+    public void guardedDebug() {
+        if (log.isDebugEnabled()) {
+            log.debug("Searching availability between {} and {}", FIRST_DAY, LAST_DAY);
+        }
+    }
+}
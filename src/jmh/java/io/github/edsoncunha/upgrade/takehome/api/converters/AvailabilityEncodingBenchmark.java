@@ -0,0 +1,101 @@
+package io.github.edsoncunha.upgrade.takehome.api.converters;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.AvailabilityCalendar;
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.OccupancyIndex;
+import io.github.edsoncunha.upgrade.takehome.support.SyntheticReservations;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing a one-year availability search in each representation. The payload size of each one is printed
+ * when the trial starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AvailabilityEncodingBenchmark {
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 1);
+
+    // the more reservations, the more fragmented the availability and the more intervals to write
+    @Param({"100", "3000", "10000"})
+    public int reservations;
+
+    private ObjectMapper objectMapper;
+    private AvailabilityCalendarHttpMessageConverter converter;
+    private AvailabilityCalendar calendar;
+    private BufferedOutputMessage outputMessage;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        converter = new AvailabilityCalendarHttpMessageConverter(objectMapper.getFactory());
+        calendar = OccupancyIndex.of(FIRST_DAY, FIRST_DAY.plusDays(364), SyntheticReservations.generate(reservations, FIRST_DAY, 365), null)
+                .availability(30);
+        outputMessage = new BufferedOutputMessage();
+
+        System.out.printf("%nPayload sizes in bytes: list of dates %d, streamed dates %d, ranges %d, bitmap %d%n",
+                jacksonListOfDates(), streamedDates(), ranges(), bitmap());
+    }
+
+    // what the endpoint used to do: build the list of dates and let Jackson serialize each one
+    @Benchmark
+    public int jacksonListOfDates() throws IOException {
+        outputMessage.reset();
+        objectMapper.writeValue(outputMessage.getBody(), calendar.availableDates());
+        return outputMessage.body.size();
+    }
+
+    @Benchmark
+    public int streamedDates() throws IOException {
+        return write(MediaType.APPLICATION_JSON);
+    }
+
+    @Benchmark
+    public int ranges() throws IOException {
+        return write(AvailabilityCalendarHttpMessageConverter.RANGES_JSON);
+    }
+
+    @Benchmark
+    public int bitmap() throws IOException {
+        return write(AvailabilityCalendarHttpMessageConverter.BITMAP_JSON);
+    }
+
+    private int write(MediaType mediaType) throws IOException {
+        outputMessage.reset();
+        converter.write(calendar, mediaType, outputMessage);
+        return outputMessage.body.size();
+    }
+
+    private static class BufferedOutputMessage implements HttpOutputMessage {
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(8192);
+        private HttpHeaders headers = new HttpHeaders();
+
+        void reset() {
+            body.reset();
+            headers = new HttpHeaders();
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package io.github.edsoncunha.upgrade.takehome.domain.entities;
+
+import io.github.edsoncunha.upgrade.takehome.support.SyntheticReservations;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ReservationBenchmark {
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 2);
+
+    @Param({"10", "1000", "100000"})
+    public int reservations;
+
+    private List<Reservation> stays;
+    private LocalDate candidateDate;
+
+    @Setup
+    public void setUp() {
+        stays = SyntheticReservations.generate(reservations, FIRST_DAY, 365);
+        candidateDate = FIRST_DAY.plusDays(180);
+    }
+
+    @Benchmark
+    public int isActiveAt() {
+        int active = 0;
+        for (Reservation reservation : stays) {
+            if (reservation.isActiveAt(candidateDate)) {
+                active++;
+            }
+        }
+        return active;
+    }
+}
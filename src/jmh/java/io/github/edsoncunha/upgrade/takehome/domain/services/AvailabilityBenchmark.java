@@ -0,0 +1,91 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Campsite;
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.AvailabilityCalendar;
+import io.github.edsoncunha.upgrade.takehome.etc.Clock;
+import io.github.edsoncunha.upgrade.takehome.support.InMemoryReservationRepository;
+import io.github.edsoncunha.upgrade.takehome.support.SyntheticReservations;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AvailabilityBenchmark {
+    private static final LocalDate TODAY = LocalDate.of(2023, 1, 1);
+
+    @Param({"10", "1000", "100000"})
+    public int reservations;
+
+    @Param({"1", "30", "365"})
+    public int rangeInDays;
+
+    @Param({"1", "30", "1000"})
+    public int capacity;
+
+    private ReservationService service;
+    private LocalDate firstDay;
+    private LocalDate lastDay;
+
+    @Setup
+    public void setUp() {
+        firstDay = TODAY.plusDays(1);
+        lastDay = firstDay.plusDays(rangeInDays - 1);
+
+        InMemoryReservationRepository repository = new InMemoryReservationRepository();
+        // reservations are spread over the whole bookable year, so longer searches meet more of them
+        SyntheticReservations.generate(reservations, firstDay, 365).forEach(repository::save);
+
+        AvailabilitySnapshots availabilitySnapshots = new AvailabilitySnapshots(repository, fixedClock());
+        availabilitySnapshots.refresh(Campsite.DEFAULT_ID);
+
+        // the capacity is normally read from the campsite table
+        CampsiteService campsites = new CampsiteService(null, Duration.ofMinutes(1)) {
+            @Override
+            public int capacityOf(long campsiteId) {
+                return capacity;
+            }
+        };
+
+        service = ReservationService.builder()
+                .campsites(campsites)
+                .clock(fixedClock())
+                .repository(repository)
+                .reservationRules(Collections.emptyList())
+                .availabilitySnapshots(availabilitySnapshots)
+                .build();
+    }
+
+    @Benchmark
+    public AvailabilityCalendar getAvailability() {
+        return service.getAvailability(Campsite.DEFAULT_ID, firstDay, lastDay, null);
+    }
+
+    /**
+     * Searches within the bookable horizon are answered by the in-memory snapshot. Longer ones fall back to
+     * {@link #getAvailability()}.
+     */
+    @Benchmark
+    public AvailabilityCalendar getAvailabilityFromSnapshot() {
+        return service.getAvailability(Campsite.DEFAULT_ID, firstDay, lastDay);
+    }
+
+    @Benchmark
+    public boolean isReservable() {
+        return service.isReservable(Campsite.DEFAULT_ID, firstDay, Math.min(rangeInDays, 3));
+    }
+
+    private static Clock fixedClock() {
+        return new Clock() {
+            @Override
+            public LocalDateTime now() {
+                return TODAY.atStartOfDay();
+            }
+        };
+    }
+}
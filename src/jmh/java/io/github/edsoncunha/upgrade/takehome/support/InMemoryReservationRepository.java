@@ -0,0 +1,148 @@
+package io.github.edsoncunha.upgrade.takehome.support;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Keeps reservations in a map, so benchmarks measure the application side of availability without a database.
+ */
+public class InMemoryReservationRepository implements ReservationRepository {
+    private final Map<Long, Reservation> reservations = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Override
+    public List<Reservation> getReservationsInPeriod(long campsiteId, LocalDate firstDayOfAccommodation, LocalDate lastDayOfAccommodation) {
+        long first = firstDayOfAccommodation.toEpochDay();
+        long last = lastDayOfAccommodation.toEpochDay();
+
+        ArrayList<Reservation> result = new ArrayList<>();
+        for (Reservation reservation : reservations.values()) {
+            if (reservation.getCampsiteId() == campsiteId &&
+                    !reservation.getCanceled() &&
+                    reservation.getCheckin().toLocalDate().toEpochDay() <= last &&
+                    reservation.getCheckout().toLocalDate().toEpochDay() > first) {
+                result.add(reservation);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void forEachStayInPeriod(long campsiteId, LocalDate firstDay, LocalDate lastDay, long ignoredReservationId, StayHandler handler) {
+        for (Reservation reservation : getReservationsInPeriod(campsiteId, firstDay, lastDay)) {
+            if (reservation.getId() != ignoredReservationId) {
+                handler.stay(reservation.getCheckin().toLocalDate().toEpochDay(), reservation.getCheckout().toLocalDate().toEpochDay());
+            }
+        }
+    }
+
+    @Override
+    public Stream<Reservation> streamByEmail(long campsiteId, String email, long afterId, int limit) {
+        return reservations.values().stream()
+                .filter(reservation -> reservation.getCampsiteId() == campsiteId &&
+                        reservation.getEmail().equals(email) &&
+                        reservation.getId() > afterId)
+                .sorted(Comparator.comparingLong(Reservation::getId))
+                .limit(limit);
+    }
+
+    @Override
+    public void forEachCheckoutAfter(LocalDate day, CheckoutHandler handler) {
+        for (Reservation reservation : reservations.values()) {
+            long checkout = reservation.getCheckout().toLocalDate().toEpochDay();
+
+            if (!reservation.getCanceled() && checkout > day.toEpochDay()) {
+                handler.checkout(reservation.getEmail(), checkout);
+            }
+        }
+    }
+
+    @Override
+    public void insertAll(List<Reservation> entities) {
+        entities.forEach(this::save);
+    }
+
+    @Override
+    public <S extends Reservation> S save(S entity) {
+        if (entity.getId() == 0) {
+            entity.setId(sequence.incrementAndGet());
+        }
+        reservations.put(entity.getId(), entity);
+        return entity;
+    }
+
+    @Override
+    public <S extends Reservation> Iterable<S> saveAll(Iterable<S> entities) {
+        entities.forEach(this::save);
+        return entities;
+    }
+
+    @Override
+    public Optional<Reservation> findById(Long id) {
+        return Optional.ofNullable(reservations.get(id));
+    }
+
+    @Override
+    public Optional<Reservation> findByIdForUpdate(long id) {
+        return findById(id);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return reservations.containsKey(id);
+    }
+
+    @Override
+    public Iterable<Reservation> findAll() {
+        return new ArrayList<>(reservations.values());
+    }
+
+    @Override
+    public Iterable<Reservation> findAllById(Iterable<Long> ids) {
+        return StreamSupport.stream(ids.spliterator(), false)
+                .map(reservations::get)
+                .filter(reservation -> reservation != null)
+                .toList();
+    }
+
+    @Override
+    public long count() {
+        return reservations.size();
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        reservations.remove(id);
+    }
+
+    @Override
+    public void delete(Reservation entity) {
+        reservations.remove(entity.getId());
+    }
+
+    @Override
+    public void deleteAllById(Iterable<? extends Long> ids) {
+        ids.forEach(reservations::remove);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Reservation> entities) {
+        entities.forEach(this::delete);
+    }
+
+    @Override
+    public void deleteAll() {
+        reservations.clear();
+    }
+}
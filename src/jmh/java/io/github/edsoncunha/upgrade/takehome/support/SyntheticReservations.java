@@ -0,0 +1,35 @@
+package io.github.edsoncunha.upgrade.takehome.support;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class SyntheticReservations {
+    private static final int MAX_LENGTH_OF_STAY = 3;
+
+    /**
+     * Stays of 1 to 3 nights arriving uniformly within {@code spreadInDays} days from {@code firstDay}. The seed is
+     * fixed, so every run of a scenario sees the same data.
+     */
+    public static List<Reservation> generate(int count, LocalDate firstDay, int spreadInDays) {
+        Random random = new Random(42);
+        ArrayList<Reservation> reservations = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            LocalDate checkin = firstDay.plusDays(random.nextInt(spreadInDays));
+            LocalDate checkout = checkin.plusDays(1 + random.nextInt(MAX_LENGTH_OF_STAY));
+
+            reservations.add(Reservation.builder()
+                    .id(i + 1)
+                    .email("guest" + i + "@mail.com")
+                    .checkin(checkin.atStartOfDay())
+                    .checkout(checkout.atStartOfDay())
+                    .build());
+        }
+
+        return reservations;
+    }
+}
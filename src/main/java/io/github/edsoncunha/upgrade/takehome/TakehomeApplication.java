@@ -5,10 +5,14 @@ import io.swagger.v3.oas.annotations.info.Contact;
 import io.swagger.v3.oas.annotations.info.Info;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// the only R2DBC connections are those of the reactive availability path, configured by ReactiveAvailabilityConfiguration
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 @EnableCaching
+@EnableScheduling
 @OpenAPIDefinition(info = @Info(description = "Campsite Management API", version = "0.1", contact = @Contact(name = "Edson Cunha",
         email = "edsoncamposcunha@gmail.com", url = "https://www.linkedin.com/in/edsoncunha/")))
 public class TakehomeApplication {
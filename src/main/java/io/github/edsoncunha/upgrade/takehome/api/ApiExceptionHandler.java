@@ -1,9 +1,15 @@
 package io.github.edsoncunha.upgrade.takehome.api;
 
 import io.github.edsoncunha.upgrade.takehome.api.responses.ApiCallError;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.BookingOverloadedException;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.CampsiteNotFoundException;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.IdempotencyKeyReusedException;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.InvalidRequestException;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.InvalidReservationException;
 import io.github.edsoncunha.upgrade.takehome.domain.exceptions.ReservationConstraintException;
 import io.github.edsoncunha.upgrade.takehome.domain.exceptions.ReservationNotFoundException;
 import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -11,13 +17,17 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 
 import java.util.Collections;
 
+@Slf4j
 @ControllerAdvice
 public class ApiExceptionHandler {
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiCallError<String>> handleInternalServerError(HttpServletRequest request, Exception ex) {
+        // the exception may carry SQL and class names, so clients only get to know it failed
+        log.error("Request to {} failed", request.getRequestURI(), ex);
+
         return ResponseEntity
                 .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(new ApiCallError<>("Internal server error", Collections.singletonList(ex.toString())));
+                .body(new ApiCallError<>("Internal server error", Collections.emptyList()));
     }
 
     @ExceptionHandler(ReservationConstraintException.class)
@@ -31,4 +41,30 @@ public class ApiExceptionHandler {
     public ResponseEntity<ApiCallError<String>> handleEntityNotFoundException(HttpServletRequest request, Exception ex) {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiCallError<>("Reservation not found", Collections.emptyList()));
     }
+
+    @ExceptionHandler(CampsiteNotFoundException.class)
+    public ResponseEntity<ApiCallError<String>> handleCampsiteNotFoundException(HttpServletRequest request, Exception ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiCallError<>("Campsite not found", Collections.emptyList()));
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<ApiCallError<String>> handleIdempotencyKeyReusedException(HttpServletRequest request, Exception ex) {
+        return ResponseEntity
+                .status(HttpStatus.UNPROCESSABLE_ENTITY)
+                .body(new ApiCallError<>("Invalid request", Collections.singletonList(ex.getMessage())));
+    }
+
+    @ExceptionHandler(BookingOverloadedException.class)
+    public ResponseEntity<ApiCallError<String>> handleBookingOverloadedException(HttpServletRequest request, Exception ex) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(new ApiCallError<>("Service unavailable", Collections.singletonList(ex.getMessage())));
+    }
+
+    @ExceptionHandler({InvalidRequestException.class, InvalidReservationException.class})
+    public ResponseEntity<ApiCallError<String>> handleInvalidRequestException(HttpServletRequest request, Exception ex) {
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(new ApiCallError<>("Invalid request", Collections.singletonList(ex.getMessage())));
+    }
 }
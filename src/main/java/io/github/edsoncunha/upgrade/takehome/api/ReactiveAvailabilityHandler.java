@@ -0,0 +1,195 @@
+package io.github.edsoncunha.upgrade.takehome.api;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.github.edsoncunha.upgrade.takehome.api.converters.AvailabilityCalendarHttpMessageConverter;
+import io.github.edsoncunha.upgrade.takehome.api.responses.ApiCallError;
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Campsite;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.CampsiteNotFoundException;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReactiveStayRepository;
+import io.github.edsoncunha.upgrade.takehome.domain.services.AvailabilityVersion;
+import io.github.edsoncunha.upgrade.takehome.domain.services.CampsiteService;
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.AvailabilityCalendar;
+import io.github.edsoncunha.upgrade.takehome.etc.Clock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Availability searches served by WebFlux on an event loop, reading the reservations over R2DBC. Same API as
+ * {@link ReservationController#getAvailability}: same parameters, representations and ETags, and the same occupancy
+ * computation, so a search gets the same bytes from either path.
+ * <p>
+ * Unlike the servlet path, searches aren't answered from the availability snapshots or cache, which fill themselves
+ * with blocking reads: every search that isn't a 304 goes to the database. When that database isn't the primary, e.g.
+ * a replica, responses carry no ETag: the replica may not have the change that increased the availability version yet.
+ */
+@Slf4j
+public class ReactiveAvailabilityHandler {
+    private static final List<MediaType> REPRESENTATIONS = List.of(MediaType.APPLICATION_JSON,
+            AvailabilityCalendarHttpMessageConverter.RANGES_JSON,
+            AvailabilityCalendarHttpMessageConverter.BITMAP_JSON);
+
+    private final ReactiveStayRepository stays;
+    private final CampsiteService campsites;
+    private final AvailabilityVersion availabilityVersion;
+    private final JsonFactory jsonFactory;
+    private final Clock clock;
+    private final boolean tagged;
+
+    public ReactiveAvailabilityHandler(ReactiveStayRepository stays,
+                                       CampsiteService campsites,
+                                       AvailabilityVersion availabilityVersion,
+                                       JsonFactory jsonFactory,
+                                       Clock clock,
+                                       boolean tagged) {
+        this.stays = stays;
+        this.campsites = campsites;
+        this.availabilityVersion = availabilityVersion;
+        this.jsonFactory = jsonFactory;
+        this.clock = clock;
+        this.tagged = tagged;
+    }
+
+    public RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+                .GET("/api/reservations/availability", this::getAvailability)
+                .GET("/api/campsites/{campsiteId}/reservations/availability", this::getAvailability)
+                .build();
+    }
+
+    public Mono<ServerResponse> getAvailability(ServerRequest request) {
+        long campsiteId;
+        LocalDate startDate;
+        LocalDate endDate;
+
+        try {
+            campsiteId = campsite(request.pathVariables().get("campsiteId"));
+            startDate = LocalDate.parse(request.queryParam("startDate").orElseThrow(() -> new IllegalArgumentException("startDate is required")));
+            endDate = LocalDate.parse(request.queryParam("endDate").orElseThrow(() -> new IllegalArgumentException("endDate is required")));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return error(HttpStatus.BAD_REQUEST, "Invalid request", Collections.singletonList(e.getMessage()));
+        }
+
+        Optional<MediaType> representation = representation(request.headers().accept());
+
+        if (representation.isEmpty()) {
+            return ServerResponse.status(HttpStatus.NOT_ACCEPTABLE).build();
+        }
+
+        HttpHeaders headers = request.exchange().getResponse().getHeaders();
+        // every representation has its own tag, and caches in between must tell them apart
+        headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        // caches may keep the response, but have to revalidate it on every request
+        headers.setCacheControl(CacheControl.noCache());
+
+        String etag = tagged ? availabilityVersion.etag(campsiteId, startDate, endDate, request.headers().firstHeader(HttpHeaders.ACCEPT)) : null;
+
+        return (etag == null ? Mono.<ServerResponse>empty() : request.checkNotModified(etag))
+                .switchIfEmpty(Mono.defer(() -> availability(campsiteId, startDate, endDate)
+                        .flatMap(calendar -> ServerResponse.ok()
+                                .headers(responseHeaders -> {
+                                    if (etag != null) {
+                                        responseHeaders.setETag(etag);
+                                    }
+                                })
+                                .contentType(representation.get())
+                                .bodyValue(encode(calendar, representation.get())))))
+                // same responses as ApiExceptionHandler
+                .onErrorResume(e -> e instanceof CampsiteNotFoundException
+                        ? error(HttpStatus.NOT_FOUND, "Campsite not found", Collections.emptyList())
+                        : internalServerError(request, e));
+    }
+
+    // the exception may carry R2DBC or SQL error text, so clients only get to know it failed
+    private static Mono<ServerResponse> internalServerError(ServerRequest request, Throwable e) {
+        log.error("Request to {} failed", request.path(), e);
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, "Internal server error", Collections.emptyList());
+    }
+
+    private Mono<AvailabilityCalendar> availability(long campsiteId, LocalDate startDate, LocalDate endDate) {
+        // past days aren't searched, as in ReservationService.getAvailability
+        LocalDate today = clock.now().toLocalDate();
+        LocalDate firstDay = startDate.isAfter(today) ? startDate : today;
+
+        return capacityOf(campsiteId).flatMap(capacity -> stays.occupancy(campsiteId, firstDay, endDate)
+                .map(occupancy -> occupancy.availability(capacity)));
+    }
+
+    private Mono<Integer> capacityOf(long campsiteId) {
+        Integer capacity = campsites.cachedCapacityOf(campsiteId);
+
+        if (capacity != null) {
+            return Mono.just(capacity);
+        }
+
+        // once a minute per campsite at most: not worth a reactive query of its own, but kept off the event loop
+        return Mono.fromCallable(() -> campsites.capacityOf(campsiteId))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private byte[] encode(AvailabilityCalendar calendar, MediaType representation) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        try (JsonGenerator json = jsonFactory.createGenerator(body, JsonEncoding.UTF8)) {
+            AvailabilityCalendarHttpMessageConverter.write(calendar, representation, json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return body.toByteArray();
+    }
+
+    /**
+     * The representation preferred by the client among those supported, as the servlet path negotiates it. No Accept
+     * header means any representation.
+     */
+    private static Optional<MediaType> representation(List<MediaType> accepted) {
+        if (accepted.isEmpty()) {
+            return Optional.of(MediaType.APPLICATION_JSON);
+        }
+
+        List<MediaType> byPreference = new ArrayList<>(accepted);
+        MimeTypeUtils.sortBySpecificity(byPreference);
+
+        for (MediaType acceptable : byPreference) {
+            for (MediaType representation : REPRESENTATIONS) {
+                if (acceptable.isCompatibleWith(representation)) {
+                    return Optional.of(representation);
+                }
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    private static Mono<ServerResponse> error(HttpStatus status, String message, List<String> details) {
+        return ServerResponse.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new ApiCallError<>(message, details));
+    }
+
+    private static long campsite(String campsiteId) {
+        return campsiteId == null ? Campsite.DEFAULT_ID : Long.parseLong(campsiteId);
+    }
+}
@@ -1,23 +1,39 @@
 package io.github.edsoncunha.upgrade.takehome.api;
 
+import io.github.edsoncunha.upgrade.takehome.api.converters.AvailabilityCalendarHttpMessageConverter;
 import io.github.edsoncunha.upgrade.takehome.api.requests.ReservationRequest;
 import io.github.edsoncunha.upgrade.takehome.api.requests.UpdateReservationRequest;
 import io.github.edsoncunha.upgrade.takehome.api.responses.ApiCallError;
+import io.github.edsoncunha.upgrade.takehome.api.responses.BatchReservationResult;
 import io.github.edsoncunha.upgrade.takehome.api.swagger.types.ListOfLocalDate;
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Campsite;
 import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.InvalidRequestException;
+import io.github.edsoncunha.upgrade.takehome.domain.services.AvailabilityVersion;
+import io.github.edsoncunha.upgrade.takehome.domain.services.IdempotentReservationService;
+import io.github.edsoncunha.upgrade.takehome.domain.services.ReservationCommand;
+import io.github.edsoncunha.upgrade.takehome.domain.services.ReservationPage;
+import io.github.edsoncunha.upgrade.takehome.domain.services.ReservationSequencer;
 import io.github.edsoncunha.upgrade.takehome.domain.services.ReservationService;
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.AvailabilityCalendar;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.validation.constraints.NotNull;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.net.URI;
 import java.time.LocalDate;
@@ -25,25 +41,103 @@ import java.util.List;
 
 @RestController
 @AllArgsConstructor
-@RequestMapping("/api/reservations")
+@RequestMapping({"/api/reservations", "/api/campsites/{campsiteId}/reservations"})
 public class ReservationController {
     @Autowired
     private ReservationService reservationService;
+    @Autowired
+    private IdempotentReservationService idempotentReservationService;
+    @Autowired
+    private ReservationSequencer reservationSequencer;
+    @Autowired
+    private AvailabilityVersion availabilityVersion;
 
-    @GetMapping("/availability")
-    @Operation(summary = "Returns a boolean indicating whether a reservation would be available for a given arrival date and length of stay")
+    @GetMapping(value = "/availability", produces = {MediaType.APPLICATION_JSON_VALUE,
+            AvailabilityCalendarHttpMessageConverter.RANGES_JSON_VALUE,
+            AvailabilityCalendarHttpMessageConverter.BITMAP_JSON_VALUE})
+    @Operation(summary = "Returns the days with places available in a period. The Accept header picks the representation: " +
+            "a list of dates, intervals of consecutive available dates, or a base64 bitmap with one bit per day starting at the first day searched. " +
+            "Responses carry an ETag: sending it back in If-None-Match gets 304 while the availability hasn't changed. " +
+            "Searches read from a read replica carry none")
     @ApiResponses(
-            value = {@ApiResponse(responseCode = "200", content = {@Content(mediaType = "application/json",
-                    schema = @Schema(implementation = ListOfLocalDate.class))})}
+            value = {@ApiResponse(responseCode = "304", description = "Availability didn't change since the response tagged with If-None-Match"),
+                    @ApiResponse(responseCode = "200", content = {
+                    @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ListOfLocalDate.class)),
+                    @Content(mediaType = AvailabilityCalendarHttpMessageConverter.RANGES_JSON_VALUE,
+                            array = @ArraySchema(schema = @Schema(implementation = AvailabilityCalendar.Range.class))),
+                    @Content(mediaType = AvailabilityCalendarHttpMessageConverter.BITMAP_JSON_VALUE, examples = @ExampleObject(value = """
+                            {
+                              "from": "2023-01-01",
+                              "days": 10,
+                              "bitmap": "7wM="
+                            }"""))})}
     )
-    public ResponseEntity<List<LocalDate>> getAvailability(
+    public ResponseEntity<AvailabilityCalendar> getAvailability(
+            @Parameter(description = "Campsite id. Requests under /api/reservations go to the default campsite")
+            @PathVariable(value = "campsiteId", required = false) Long campsiteId,
+
             @Parameter(description = "First day of availability search")
             @RequestParam LocalDate startDate,
 
             @Parameter(description = "Last day of availability search")
-            @RequestParam LocalDate endDate
+            @RequestParam LocalDate endDate,
+
+            WebRequest request,
+            HttpServletResponse response
     ) {
-        return ResponseEntity.ok(reservationService.getAvailableDates(startDate, endDate));
+        // every representation has its own tag, and caches in between must tell them apart
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        // caches may keep the response, but have to revalidate it on every request
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+
+        // taken before reading: a change committed in between makes the tag older than the answer, never newer
+        String etag = availabilityVersion.etag(campsite(campsiteId), startDate, endDate, request.getHeader(HttpHeaders.ACCEPT));
+
+        if (availabilityVersion.tagsReplicaReads()) {
+            // answered before going to the service: an unchanged version means unchanged availability
+            if (request.checkNotModified(etag)) {
+                return null;
+            }
+
+            return ResponseEntity.ok(reservationService.getAvailability(campsite(campsiteId), startDate, endDate));
+        }
+
+        // a replica may still be behind the version: only answers from the snapshot, built from the primary, are
+        // tagged. Whether the snapshot answered is only known once it's read, which costs no more than the check
+        AvailabilityCalendar fromSnapshot = reservationService.getAvailabilityFromSnapshot(campsite(campsiteId), startDate, endDate);
+
+        if (fromSnapshot == null) {
+            return ResponseEntity.ok(reservationService.getAvailability(campsite(campsiteId), startDate, endDate));
+        }
+
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        return ResponseEntity.ok(fromSnapshot);
+    }
+
+    @GetMapping(params = "email")
+    @Operation(summary = "Returns the reservations of a guest, canceled ones included, a page at a time in id order. " +
+            "The next page is asked for with the \"next\" value of the current one as \"after\", until it is null")
+    @ApiResponses(
+            value = {@ApiResponse(responseCode = "200", content = {@Content(mediaType = "application/json",
+                    schema = @Schema(implementation = ReservationPage.class))})}
+    )
+    public ResponseEntity<ReservationPage> findReservations(
+            @Parameter(description = "Campsite id. Requests under /api/reservations go to the default campsite")
+            @PathVariable(value = "campsiteId", required = false) Long campsiteId,
+
+            @Parameter(description = "E-mail of the guest")
+            @RequestParam String email,
+
+            @Parameter(description = "Id of the last reservation of the previous page. Omitted for the first page")
+            @RequestParam(defaultValue = "0") long after,
+
+            @Parameter(description = "Reservations per page, up to " + ReservationService.MAX_PAGE_SIZE)
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        return ResponseEntity.ok(reservationService.findReservationsByEmail(campsite(campsiteId), email, after, limit));
     }
 
     @PostMapping
@@ -52,17 +146,66 @@ public class ReservationController {
             value = {@ApiResponse(responseCode = "201", description = "Created successfully", content = {@Content(mediaType = "application/json",
                     schema = @Schema(implementation = Boolean.class))}),
                     @ApiResponse(responseCode = "409", description = "Reservation was not successful due to a rule violation", content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ApiCallError.class))}),
+                    @ApiResponse(responseCode = "400", description = "The idempotency key is too long", content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ApiCallError.class))}),
+                    @ApiResponse(responseCode = "422", description = "The idempotency key was already used for a different reservation request", content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ApiCallError.class))}),
+                    @ApiResponse(responseCode = "503", description = "Too many bookings in progress, the request can be retried later", content = {@Content(mediaType = "application/json",
                             schema = @Schema(implementation = ApiCallError.class))})
             }
     )
-    public ResponseEntity<Reservation> submitReservation(ReservationRequest request) {
-        Reservation reservation = reservationService.reserve(request.email, request.arrivalDate, request.lengthOfStay);
+    public ResponseEntity<Reservation> submitReservation(
+            @Parameter(description = "Campsite id. Requests under /api/reservations go to the default campsite")
+            @PathVariable(value = "campsiteId", required = false) Long campsiteId,
+
+            ReservationRequest request,
+
+            @Parameter(description = "Any unique value chosen by the client, e.g. a UUID, up to " + IdempotentReservationService.MAX_KEY_LENGTH + " characters. Retries carrying the same key get the reservation made by the first request instead of booking again")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
+    ) {
+        if (idempotencyKey != null && idempotencyKey.length() > IdempotentReservationService.MAX_KEY_LENGTH) {
+            throw new InvalidRequestException("Idempotency-Key can have at most " + IdempotentReservationService.MAX_KEY_LENGTH + " characters");
+        }
+
+        Reservation reservation = idempotencyKey == null
+                ? reservationSequencer.reserve(campsite(campsiteId), request.email, request.arrivalDate, request.lengthOfStay)
+                : idempotentReservationService.reserve(idempotencyKey, campsite(campsiteId), request.email, request.arrivalDate, request.lengthOfStay);
 
         return ResponseEntity
                 .created(URI.create("/reservations/" + reservation.getId()))
                 .body(reservation);
     }
 
+    @PostMapping("/batch")
+    @Operation(summary = "Submits many reservations at once, up to " + ReservationService.MAX_BATCH_SIZE + ". They are booked in order, in a single transaction")
+    @ApiResponses(
+            value = {@ApiResponse(responseCode = "200", description = "One result per submitted reservation, in the same order", content = {@Content(mediaType = "application/json",
+                    array = @ArraySchema(schema = @Schema(implementation = BatchReservationResult.class)))}),
+                    @ApiResponse(responseCode = "400", description = "Too many reservations in the batch", content = {@Content(mediaType = "application/json",
+                            schema = @Schema(implementation = ApiCallError.class))})
+            }
+    )
+    public ResponseEntity<List<BatchReservationResult>> submitReservations(
+            @Parameter(description = "Campsite id. Requests under /api/reservations go to the default campsite")
+            @PathVariable(value = "campsiteId", required = false) Long campsiteId,
+
+            @RequestBody List<ReservationRequest> requests) {
+        if (requests.size() > ReservationService.MAX_BATCH_SIZE) {
+            throw new InvalidRequestException("A batch can have at most " + ReservationService.MAX_BATCH_SIZE + " reservations");
+        }
+
+        List<ReservationCommand> commands = requests.stream()
+                .map(request -> new ReservationCommand(request.email, request.arrivalDate, request.lengthOfStay))
+                .toList();
+
+        List<BatchReservationResult> results = reservationService.reserveAll(campsite(campsiteId), commands).stream()
+                .map(BatchReservationResult::of)
+                .toList();
+
+        return ResponseEntity.ok(results);
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Updates a reservation")
     @ApiResponses(
@@ -70,6 +213,7 @@ public class ReservationController {
                     schema = @Schema(implementation = Reservation.class), examples = @ExampleObject(value= """
                     {
                       "id": 29,
+                      "campsiteId": 1,
                       "email": "string",
                       "checkin": "2023-03-29T02:00:00.000",
                       "checkout": "2023-03-31T00:00:00.000",
@@ -80,8 +224,12 @@ public class ReservationController {
                             schema = @Schema(implementation = ApiCallError.class))})
             }
     )
-    public ResponseEntity<Reservation> updateReservation(@Parameter(description = "Reservation id", required = true) @PathVariable("id") @NotNull long id,  @RequestBody UpdateReservationRequest request) {
-        Reservation updatedReservation = reservationService.updateReservation(id, request.arrivalDate, request.lengthOfStay);
+    public ResponseEntity<Reservation> updateReservation(
+            @Parameter(description = "Campsite id. Requests under /api/reservations go to the default campsite")
+            @PathVariable(value = "campsiteId", required = false) Long campsiteId,
+
+            @Parameter(description = "Reservation id", required = true) @PathVariable("id") @NotNull long id,  @RequestBody UpdateReservationRequest request) {
+        Reservation updatedReservation = reservationService.updateReservation(campsite(campsiteId), id, request.arrivalDate, request.lengthOfStay);
 
         return ResponseEntity.ok(updatedReservation);
     }
@@ -91,9 +239,17 @@ public class ReservationController {
     @ApiResponses(
             value = {@ApiResponse(responseCode = "200", description = "Canceled successfully", content = {@Content(mediaType = "application/json")})}
     )
-    public ResponseEntity<Void> cancelReservation(@Parameter(description = "Reservation id", required = true) @PathVariable("id") @NotNull long id) {
-        reservationService.cancelReservation(id);
+    public ResponseEntity<Void> cancelReservation(
+            @Parameter(description = "Campsite id. Requests under /api/reservations go to the default campsite")
+            @PathVariable(value = "campsiteId", required = false) Long campsiteId,
+
+            @Parameter(description = "Reservation id", required = true) @PathVariable("id") @NotNull long id) {
+        reservationService.cancelReservation(campsite(campsiteId), id);
 
         return ResponseEntity.ok().build();
     }
+
+    private static long campsite(Long campsiteId) {
+        return campsiteId == null ? Campsite.DEFAULT_ID : campsiteId;
+    }
 }
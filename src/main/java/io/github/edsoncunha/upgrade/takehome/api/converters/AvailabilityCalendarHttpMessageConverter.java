@@ -0,0 +1,110 @@
+package io.github.edsoncunha.upgrade.takehome.api.converters;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.AvailabilityCalendar;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Iterator;
+
+/**
+ * Writes an {@link AvailabilityCalendar} straight from its bits to the response, in one of three representations:
+ * <ul>
+ *     <li>{@code application/json}: array of available dates, {@code ["2023-01-01", "2023-01-02"]}</li>
+ *     <li>{@value #RANGES_JSON_VALUE}: intervals of consecutive available dates, {@code [{"from": "2023-01-01", "to": "2023-01-02"}]}</li>
+ *     <li>{@value #BITMAP_JSON_VALUE}: {@code {"from": "2023-01-01", "days": 365, "bitmap": "<base64>"}}, one bit
+ *     per day, least significant bit first</li>
+ * </ul>
+ */
+public class AvailabilityCalendarHttpMessageConverter extends AbstractHttpMessageConverter<AvailabilityCalendar> {
+    public static final String RANGES_JSON_VALUE = "application/vnd.campsite.availability.ranges+json";
+    public static final String BITMAP_JSON_VALUE = "application/vnd.campsite.availability.bitmap+json";
+    public static final MediaType RANGES_JSON = MediaType.parseMediaType(RANGES_JSON_VALUE);
+    public static final MediaType BITMAP_JSON = MediaType.parseMediaType(BITMAP_JSON_VALUE);
+
+    private final JsonFactory jsonFactory;
+
+    public AvailabilityCalendarHttpMessageConverter(JsonFactory jsonFactory) {
+        super(MediaType.APPLICATION_JSON, RANGES_JSON, BITMAP_JSON);
+        this.jsonFactory = jsonFactory;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return AvailabilityCalendar.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected AvailabilityCalendar readInternal(Class<? extends AvailabilityCalendar> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Availability can't be sent to the API", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(AvailabilityCalendar calendar, HttpOutputMessage outputMessage) throws IOException {
+        MediaType contentType = outputMessage.getHeaders().getContentType();
+
+        try (JsonGenerator json = jsonFactory.createGenerator(StreamUtils.nonClosing(outputMessage.getBody()), JsonEncoding.UTF8)) {
+            write(calendar, contentType, json);
+        }
+    }
+
+    /**
+     * Writes the calendar in the representation of {@code contentType}. Also used by the reactive availability
+     * handler, so both paths answer with the same bytes.
+     */
+    public static void write(AvailabilityCalendar calendar, MediaType contentType, JsonGenerator json) throws IOException {
+        if (RANGES_JSON.isCompatibleWith(contentType)) {
+            writeRanges(calendar, json);
+        } else if (BITMAP_JSON.isCompatibleWith(contentType)) {
+            writeBitmap(calendar, json);
+        } else {
+            writeDates(calendar, json);
+        }
+    }
+
+    private static void writeDates(AvailabilityCalendar calendar, JsonGenerator json) throws IOException {
+        json.writeStartArray();
+
+        Iterator<LocalDate> dates = calendar.streamAvailableDates().iterator();
+        while (dates.hasNext()) {
+            json.writeString(dates.next().toString());
+        }
+
+        json.writeEndArray();
+    }
+
+    private static void writeRanges(AvailabilityCalendar calendar, JsonGenerator json) throws IOException {
+        json.writeStartArray();
+
+        for (AvailabilityCalendar.Range range : calendar.availableRanges()) {
+            json.writeStartObject();
+            json.writeStringField("from", range.from().toString());
+            json.writeStringField("to", range.to().toString());
+            json.writeEndObject();
+        }
+
+        json.writeEndArray();
+    }
+
+    private static void writeBitmap(AvailabilityCalendar calendar, JsonGenerator json) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("from", calendar.firstDay().toString());
+        json.writeNumberField("days", calendar.days());
+        json.writeFieldName("bitmap");
+        json.writeBinary(calendar.toBitmap());
+        json.writeEndObject();
+    }
+}
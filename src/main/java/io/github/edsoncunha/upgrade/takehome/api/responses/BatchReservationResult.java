@@ -0,0 +1,27 @@
+package io.github.edsoncunha.upgrade.takehome.api.responses;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import io.github.edsoncunha.upgrade.takehome.domain.services.ReservationOutcome;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class BatchReservationResult {
+    public enum Status {CREATED, REJECTED}
+
+    Status status;
+    Reservation reservation;
+    String error;
+
+    public static BatchReservationResult of(ReservationOutcome outcome) {
+        if (outcome.isCreated()) {
+            return new BatchReservationResult(Status.CREATED, outcome.reservation(), null);
+        }
+
+        String error = outcome.violation().getMessage();
+
+        return new BatchReservationResult(Status.REJECTED, null,
+                error != null ? error : outcome.violation().getClass().getSimpleName());
+    }
+}
@@ -1,18 +1,86 @@
 package io.github.edsoncunha.upgrade.takehome.configuration;
 
-import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
-import org.springframework.stereotype.Component;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.AvailabilityCache;
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.AvailabilityCalendar;
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.AvailabilitySearchKey;
+import io.github.edsoncunha.upgrade.takehome.etc.Clock;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static io.github.edsoncunha.upgrade.takehome.domain.services.ReservationService.AVAILABILITY_SEARCH_CACHE_NAME;
 
 
-@Component
-public class CacheConfiguration implements CacheManagerCustomizer<ConcurrentMapCacheManager> {
-    @Override
-    public void customize(ConcurrentMapCacheManager cacheManager) {
-        cacheManager.setCacheNames(List.of(AVAILABILITY_SEARCH_CACHE_NAME));
+@Configuration
+public class CacheConfiguration {
+    // rough size of a cached search besides its bits: key, calendar, bitset and the cache entry itself
+    private static final int ENTRY_OVERHEAD_IN_BYTES = 200;
+
+    /**
+     * Search ranges come from the users, so the cache is bounded by the approximate memory its entries take. Entries
+     * expire after {@code timeToLive}, and at the latest at midnight, since a search starting in the past covers
+     * fewer bookable days from then on.
+     */
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${campsite.availabilityCache.maximumSize:16MB}") DataSize maximumSize,
+            @Value("${campsite.availabilityCache.timeToLive:10m}") Duration timeToLive,
+            Clock clock) {
+        // entries dropped by Caffeine (size or expiry) must leave the range index as well
+        AtomicReference<AvailabilityCache> availabilityCache = new AtomicReference<>();
+
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> store = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes())
+                .weigher((key, value) -> ENTRY_OVERHEAD_IN_BYTES + ((AvailabilityCalendar) value).days() / 8)
+                .expireAfter(expiringUntilMidnight(timeToLive, clock))
+                .evictionListener((key, value, cause) -> availabilityCache.get().forget(key))
+                .recordStats()
+                .build();
+
+        availabilityCache.set(new AvailabilityCache(new CaffeineCache(AVAILABILITY_SEARCH_CACHE_NAME, store, false)));
+
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(availabilityCache.get()));
+        return cacheManager;
+    }
+
+    @Bean(AvailabilityCache.KEY_GENERATOR)
+    public KeyGenerator availabilitySearchKeyGenerator() {
+        return (target, method, params) -> new AvailabilitySearchKey((long) params[0], (LocalDate) params[1], (LocalDate) params[2]);
+    }
+
+    private static Expiry<Object, Object> expiringUntilMidnight(Duration timeToLive, Clock clock) {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(Object key, Object value, long currentTime) {
+                LocalDateTime now = clock.now();
+                Duration untilMidnight = Duration.between(now, now.toLocalDate().plusDays(1).atStartOfDay());
+
+                return Math.min(timeToLive.toNanos(), untilMidnight.toNanos());
+            }
+
+            @Override
+            public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+                return expireAfterCreate(key, value, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,84 @@
+package io.github.edsoncunha.upgrade.takehome.configuration;
+
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.AvailabilityCache;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.cache.CacheMeterBinder;
+import org.springframework.boot.actuate.metrics.cache.CacheMeterBinderProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfiguration {
+
+    // enables @Timed on service methods
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    // binds cache.gets (hit/miss), cache.puts, cache.evictions, cache.size and the cache weight for the availability cache
+    @Bean
+    public CacheMeterBinderProvider<AvailabilityCache> availabilityCacheMeterBinderProvider() {
+        return AvailabilityCacheMetrics::new;
+    }
+
+    static class AvailabilityCacheMetrics extends CacheMeterBinder<AvailabilityCache> {
+        AvailabilityCacheMetrics(AvailabilityCache cache, Iterable<Tag> tags) {
+            super(cache, cache.getName(), tags);
+        }
+
+        @Override
+        protected Long size() {
+            AvailabilityCache cache = getCache();
+            return cache == null ? null : cache.size();
+        }
+
+        @Override
+        protected long hitCount() {
+            AvailabilityCache cache = getCache();
+            return cache == null ? 0 : cache.hitCount();
+        }
+
+        @Override
+        protected Long missCount() {
+            AvailabilityCache cache = getCache();
+            return cache == null ? null : cache.missCount();
+        }
+
+        @Override
+        protected Long evictionCount() {
+            AvailabilityCache cache = getCache();
+            return cache == null ? null : cache.evictionCount();
+        }
+
+        @Override
+        protected long putCount() {
+            AvailabilityCache cache = getCache();
+            return cache == null ? 0 : cache.putCount();
+        }
+
+        @Override
+        protected void bindImplementationSpecificMetrics(MeterRegistry registry) {
+            AvailabilityCache cache = getCache();
+
+            if (cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> store) {
+                Gauge.builder("cache.weight", store, s -> s.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                        .tags(getTagsWithCacheName())
+                        .description("Approximate memory taken by the cached entries, in bytes")
+                        .baseUnit(BaseUnits.BYTES)
+                        .register(registry);
+
+                FunctionCounter.builder("cache.eviction.weight", store, s -> s.stats().evictionWeight())
+                        .tags(getTagsWithCacheName())
+                        .description("Approximate memory released by entries evicted because the cache was full or they expired, in bytes")
+                        .baseUnit(BaseUnits.BYTES)
+                        .register(registry);
+            }
+        }
+    }
+}
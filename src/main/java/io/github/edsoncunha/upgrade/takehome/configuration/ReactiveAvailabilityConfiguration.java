@@ -0,0 +1,85 @@
+package io.github.edsoncunha.upgrade.takehome.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.edsoncunha.upgrade.takehome.api.ReactiveAvailabilityHandler;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReactiveStayRepository;
+import io.github.edsoncunha.upgrade.takehome.domain.services.AvailabilityVersion;
+import io.github.edsoncunha.upgrade.takehome.domain.services.CampsiteService;
+import io.github.edsoncunha.upgrade.takehome.etc.Clock;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+
+/**
+ * Serves availability searches from WebFlux and R2DBC on a port of their own, when
+ * {@code campsite.reactiveAvailability.enabled} is true. Availability polling is the bulk of the traffic and is spent
+ * waiting on the database: on an event loop, a handful of threads and {@code maxConnections} connections hold any
+ * number of concurrent searches, instead of one Tomcat thread and one JDBC connection per search in progress.
+ * <p>
+ * Bookings and everything else stay on the servlet stack. The R2DBC pool is separate from Hikari and reads the same
+ * database unless {@code campsite.reactiveAvailability.url} says otherwise, e.g. a replica.
+ */
+@Configuration
+@ConditionalOnProperty(name = "campsite.reactiveAvailability.enabled", havingValue = "true")
+public class ReactiveAvailabilityConfiguration {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool reactiveConnectionPool(
+            @Value("${campsite.reactiveAvailability.url:}") String url,
+            @Value("${spring.datasource.url}") String jdbcUrl,
+            @Value("${campsite.reactiveAvailability.username:${spring.datasource.username}}") String username,
+            @Value("${campsite.reactiveAvailability.password:${spring.datasource.password}}") String password,
+            @Value("${campsite.reactiveAvailability.maxConnections:10}") int maxConnections) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url.isEmpty() ? r2dbcUrl(jdbcUrl) : url)
+                .mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .name("reactive-availability")
+                .initialSize(0)
+                .maxSize(maxConnections)
+                .build());
+    }
+
+    @Bean
+    public ReactiveAvailabilityHandler reactiveAvailabilityHandler(ConnectionPool reactiveConnectionPool,
+                                                                   CampsiteService campsiteService,
+                                                                   AvailabilityVersion availabilityVersion,
+                                                                   ObjectMapper objectMapper,
+                                                                   Clock clock,
+                                                                   @Value("${campsite.reactiveAvailability.url:}") String url) {
+        // the version follows the primary: searches read from another database, e.g. a replica, aren't tagged
+        return new ReactiveAvailabilityHandler(new ReactiveStayRepository(reactiveConnectionPool), campsiteService,
+                availabilityVersion, objectMapper.getFactory(), clock, url.isEmpty());
+    }
+
+    @Bean
+    public ReactiveAvailabilityServer reactiveAvailabilityServer(ReactiveAvailabilityHandler handler,
+                                                                 ObjectMapper objectMapper,
+                                                                 @Value("${campsite.reactiveAvailability.port:8081}") int port) {
+        // error bodies are written with the application's ObjectMapper, as on the servlet path
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper)))
+                .build();
+
+        return new ReactiveAvailabilityServer(RouterFunctions.toHttpHandler(handler.routes(), strategies), port);
+    }
+
+    // same database as the datasource. Its JDBC parameters, e.g. currentSchema, mean nothing to R2DBC
+    private static String r2dbcUrl(String jdbcUrl) {
+        String url = jdbcUrl.replaceFirst("^jdbc:", "r2dbc:");
+        int parameters = url.indexOf('?');
+
+        return parameters < 0 ? url : url.substring(0, parameters);
+    }
+}
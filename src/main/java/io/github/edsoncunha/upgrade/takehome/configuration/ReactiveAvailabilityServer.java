@@ -0,0 +1,44 @@
+package io.github.edsoncunha.upgrade.takehome.configuration;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.server.reactive.HttpHandler;
+
+/**
+ * Reactor Netty server of the reactive availability path, running on its own port next to Tomcat. It starts and stops
+ * with the application context.
+ */
+public class ReactiveAvailabilityServer implements SmartLifecycle {
+    private final WebServer webServer;
+
+    private volatile boolean running;
+
+    public ReactiveAvailabilityServer(HttpHandler httpHandler, int port) {
+        this.webServer = new NettyReactiveWebServerFactory(port).getWebServer(httpHandler);
+    }
+
+    @Override
+    public void start() {
+        webServer.start();
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        webServer.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Port the server listens on, once started. Useful when {@code campsite.reactiveAvailability.port} is 0.
+     */
+    public int port() {
+        return webServer.getPort();
+    }
+}
@@ -0,0 +1,21 @@
+package io.github.edsoncunha.upgrade.takehome.configuration;
+
+import io.github.edsoncunha.upgrade.takehome.support.VirtualThreads;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Runs every request on its own virtual thread instead of Tomcat's worker pool, so a request blocked on a lock or
+ * waiting for a pooled connection doesn't hold a platform thread.
+ */
+@Configuration
+@ConditionalOnProperty(name = "campsite.virtualThreads", havingValue = "true")
+public class VirtualThreadsConfiguration {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.newVirtualThreadPerTaskExecutor());
+    }
+}
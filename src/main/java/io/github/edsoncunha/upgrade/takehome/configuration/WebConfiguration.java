@@ -0,0 +1,22 @@
+package io.github.edsoncunha.upgrade.takehome.configuration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.edsoncunha.upgrade.takehome.api.converters.AvailabilityCalendarHttpMessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // ahead of Jackson, which would otherwise serialize the calendar as a bean for application/json
+        converters.add(0, new AvailabilityCalendarHttpMessageConverter(objectMapper.getFactory()));
+    }
+}
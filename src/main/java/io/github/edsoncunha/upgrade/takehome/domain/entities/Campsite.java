@@ -0,0 +1,27 @@
+package io.github.edsoncunha.upgrade.takehome.domain.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity(name = "campsite")
+@Data
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class Campsite {
+    // the campsite operated before there were several of them. Requests that don't name a campsite go to it
+    public static final long DEFAULT_ID = 1;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @Column(name = "name", nullable = false)
+    private String name;
+
+    @Column(name = "capacity", nullable = false)
+    private int capacity;
+}
@@ -20,6 +20,10 @@ public class Reservation {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
 
+    @Column(name = "campsite_id", nullable = false)
+    @Builder.Default
+    private long campsiteId = Campsite.DEFAULT_ID;
+
     @Column(name = "email")
     private String email;
 
@@ -0,0 +1,7 @@
+package io.github.edsoncunha.upgrade.takehome.domain.exceptions;
+
+public class BookingOverloadedException extends RuntimeException {
+    public BookingOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,4 @@
+package io.github.edsoncunha.upgrade.takehome.domain.exceptions;
+
+public class CampsiteNotFoundException extends RuntimeException {
+}
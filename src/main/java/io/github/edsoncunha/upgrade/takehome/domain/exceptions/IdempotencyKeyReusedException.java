@@ -0,0 +1,7 @@
+package io.github.edsoncunha.upgrade.takehome.domain.exceptions;
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+    public IdempotencyKeyReusedException(String key) {
+        super("Idempotency key " + key + " was already used for a different reservation request");
+    }
+}
@@ -0,0 +1,10 @@
+package io.github.edsoncunha.upgrade.takehome.domain.exceptions;
+
+/**
+ * A request that can't be processed as sent, whatever the state of the campsite. Answered with 400.
+ */
+public class InvalidRequestException extends RuntimeException {
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+}
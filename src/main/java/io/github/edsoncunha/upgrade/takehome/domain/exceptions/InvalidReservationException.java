@@ -0,0 +1,17 @@
+package io.github.edsoncunha.upgrade.takehome.domain.exceptions;
+
+import lombok.AllArgsConstructor;
+
+/**
+ * A stay that can't be booked as sent, e.g. without an email. Rejects only its own stay in a batch, and is answered
+ * with 400 on its own.
+ */
+@AllArgsConstructor
+public class InvalidReservationException extends ReservationConstraintException {
+    private final String reason;
+
+    @Override
+    public String getMessage() {
+        return reason;
+    }
+}
@@ -0,0 +1,15 @@
+package io.github.edsoncunha.upgrade.takehome.domain.exceptions;
+
+import lombok.AllArgsConstructor;
+
+import java.text.MessageFormat;
+
+@AllArgsConstructor
+public class MaxActiveReservationsExceededException extends ReservationConstraintException {
+    private final int maxActiveReservations;
+
+    @Override
+    public String getMessage() {
+        return MessageFormat.format("A guest can hold at most {0} active reservations", maxActiveReservations);
+    }
+}
@@ -1,4 +1,9 @@
 package io.github.edsoncunha.upgrade.takehome.domain.exceptions;
 
 public class NoPlacesAvailableException  extends ReservationConstraintException  {
+
+    @Override
+    public String getMessage() {
+        return "No places available for the selected dates";
+    }
 }
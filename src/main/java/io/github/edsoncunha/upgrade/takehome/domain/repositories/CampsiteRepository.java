@@ -0,0 +1,9 @@
+package io.github.edsoncunha.upgrade.takehome.domain.repositories;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Campsite;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CampsiteRepository extends CrudRepository<Campsite, Long> {
+}
@@ -0,0 +1,52 @@
+package io.github.edsoncunha.upgrade.takehome.domain.repositories;
+
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.Optional;
+
+@Repository
+@AllArgsConstructor
+public class IdempotencyKeyRepository {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Registers the key for the current transaction. If another transaction registered it and is still running, this
+     * waits until it commits or rolls back.
+     *
+     * @return empty if the key is ours now, or the request that used it first
+     */
+    public Optional<IdempotencyKey> claim(String key, String fingerprint) {
+        int inserted = jdbcTemplate.update("insert into idempotency_key (key, fingerprint) values (?, ?) on conflict (key) do nothing",
+                key, fingerprint);
+
+        if (inserted == 1) {
+            return Optional.empty();
+        }
+
+        return Optional.of(jdbcTemplate.queryForObject("select key, fingerprint, reservation_id from idempotency_key where key = ?",
+                (resultSet, row) -> new IdempotencyKey(resultSet.getString("key"), resultSet.getString("fingerprint"), resultSet.getLong("reservation_id")),
+                key));
+    }
+
+    public void complete(String key, long reservationId) {
+        jdbcTemplate.update("update idempotency_key set reservation_id = ? where key = ?", reservationId, key);
+    }
+
+    /**
+     * Deletes the keys registered more than {@code age} ago.
+     *
+     * @return how many keys were deleted
+     */
+    public int deleteOlderThan(Duration age) {
+        return jdbcTemplate.update("delete from idempotency_key where created_at < localtimestamp - make_interval(secs => ?)",
+                age.toMillis() / 1000.0);
+    }
+
+    public record IdempotencyKey(String key, String fingerprint, long reservationId) {
+    }
+}
@@ -0,0 +1,56 @@
+package io.github.edsoncunha.upgrade.takehome.domain.repositories;
+
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.OccupancyIndex;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * Non-blocking counterpart of {@link ReservationJdbcOperations#forEachStayInPeriod}, over R2DBC. Rows are added to
+ * the occupancy index as they arrive, so no thread waits for the database while a search is running.
+ */
+public class ReactiveStayRepository {
+    // same predicate as ReservationJdbcOperationsImpl.forEachStayInPeriod: GiST index on (campsite, stay), and only
+    // the partitions of the months around the period are read
+    private static final String STAYS_IN_PERIOD = "select checkin::date - date '1970-01-01', checkout::date - date '1970-01-01' from reservation " +
+            "   where " +
+            "       checkin >= cast($1 as date) - interval '1 month' and " +
+            "       checkin < cast($2 as date) + 1 and " +
+            "       campsite_id = $3 and " +
+            "       stay && daterange($1, $2, '[]') and " +
+            "       canceled = false";
+
+    private final ConnectionFactory connectionFactory;
+
+    public ReactiveStayRepository(ConnectionFactory connectionFactory) {
+        this.connectionFactory = connectionFactory;
+    }
+
+    /**
+     * Occupancy of the campsite on every night of [firstDay, lastDay], counting its active reservations.
+     */
+    public Mono<OccupancyIndex> occupancy(long campsiteId, LocalDate firstDay, LocalDate lastDay) {
+        if (lastDay.isBefore(firstDay)) {
+            // an empty window. Postgres refuses to build its range
+            return Mono.fromSupplier(() -> OccupancyIndex.builder(firstDay, lastDay).build());
+        }
+
+        return Flux.usingWhen(connectionFactory.create(),
+                        connection -> Flux.from(connection.createStatement(STAYS_IN_PERIOD)
+                                        .bind("$1", firstDay)
+                                        .bind("$2", lastDay)
+                                        .bind("$3", campsiteId)
+                                        .execute())
+                                .flatMap(result -> result.map((row, metadata) -> new Stay(row.get(0, Integer.class), row.get(1, Integer.class)))),
+                        Connection::close)
+                .reduceWith(() -> OccupancyIndex.builder(firstDay, lastDay),
+                        (occupancy, stay) -> occupancy.add(stay.checkinEpochDay(), stay.checkoutEpochDay()))
+                .map(OccupancyIndex.Builder::build);
+    }
+
+    private record Stay(long checkinEpochDay, long checkoutEpochDay) {
+    }
+}
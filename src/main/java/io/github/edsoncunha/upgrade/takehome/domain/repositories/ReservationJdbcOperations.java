@@ -0,0 +1,41 @@
+package io.github.edsoncunha.upgrade.takehome.domain.repositories;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository operations written with plain JDBC, where going through the persistence context would cost too much.
+ */
+public interface ReservationJdbcOperations {
+    /**
+     * Inserts all reservations with JDBC batches and sets their ids.
+     */
+    void insertAll(List<Reservation> reservations);
+
+    /**
+     * Hands the check-in and check-out days of every active reservation of the campsite with at least one night in
+     * [first, last] to {@code handler}, as epoch days. Only those two columns are read and no entity is created, so
+     * wide windows don't fill the heap (and the persistence context) with reservations that are only counted.
+     *
+     * @param ignoredReservationId a reservation left out, or 0 for none
+     */
+    void forEachStayInPeriod(long campsiteId, LocalDate firstDay, LocalDate lastDay, long ignoredReservationId, StayHandler handler);
+
+    /**
+     * Hands the e-mail and check-out day, as epoch day, of every active reservation checking out after {@code day} to
+     * {@code handler}, without creating entities.
+     */
+    void forEachCheckoutAfter(LocalDate day, CheckoutHandler handler);
+
+    @FunctionalInterface
+    interface StayHandler {
+        void stay(long checkinEpochDay, long checkoutEpochDay);
+    }
+
+    @FunctionalInterface
+    interface CheckoutHandler {
+        void checkout(String email, long checkoutEpochDay);
+    }
+}
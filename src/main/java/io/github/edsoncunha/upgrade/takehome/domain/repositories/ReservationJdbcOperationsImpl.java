@@ -0,0 +1,82 @@
+package io.github.edsoncunha.upgrade.takehome.domain.repositories;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@AllArgsConstructor
+class ReservationJdbcOperationsImpl implements ReservationJdbcOperations {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(List<Reservation> reservations) {
+        if (reservations.isEmpty()) {
+            return;
+        }
+
+        // ids are taken from the serial sequence upfront, since a batch can't return the generated keys
+        List<Long> ids = jdbcTemplate.queryForList("select nextval('reservation_id_seq') from generate_series(1, ?)",
+                Long.class, reservations.size());
+
+        List<Object[]> rows = new ArrayList<>(reservations.size());
+
+        for (int i = 0; i < reservations.size(); i++) {
+            Reservation reservation = reservations.get(i);
+            reservation.setId(ids.get(i));
+
+            rows.add(new Object[]{
+                    reservation.getId(),
+                    reservation.getCampsiteId(),
+                    reservation.getEmail(),
+                    Timestamp.valueOf(reservation.getCheckin()),
+                    Timestamp.valueOf(reservation.getCheckout()),
+                    reservation.getCanceled()
+            });
+        }
+
+        jdbcTemplate.batchUpdate("insert into reservation (id, campsite_id, email, checkin, checkout, canceled) values (?, ?, ?, ?, ?, ?)", rows);
+    }
+
+    @Override
+    public void forEachStayInPeriod(long campsiteId, LocalDate firstDay, LocalDate lastDay, long ignoredReservationId, StayHandler handler) {
+        // same predicate as ReservationRepository.getReservationsInPeriod, so the partial GiST index on (campsite, stay)
+        // is used and only the partitions of the months around the period are read.
+        // Days are computed by Postgres, so each row is just two integers
+        jdbcTemplate.query("select checkin::date - date '1970-01-01', checkout::date - date '1970-01-01' from reservation " +
+                        "   where " +
+                        "       checkin >= cast(? as date) - interval '1 month' and " +
+                        "       checkin < cast(? as date) + 1 and " +
+                        "       campsite_id = ? and " +
+                        "       stay && daterange(?, ?, '[]') and " +
+                        "       canceled = false and " +
+                        "       id <> ?",
+                resultSet -> {
+                    handler.stay(resultSet.getLong(1), resultSet.getLong(2));
+                },
+                Date.valueOf(firstDay), Date.valueOf(lastDay),
+                campsiteId, Date.valueOf(firstDay), Date.valueOf(lastDay), ignoredReservationId);
+    }
+
+    @Override
+    public void forEachCheckoutAfter(LocalDate day, CheckoutHandler handler) {
+        // stays are at most a month long, so older check-ins can't check out after the day, and their partitions are
+        // skipped
+        jdbcTemplate.query("select email, checkout::date - date '1970-01-01' from reservation " +
+                        "   where " +
+                        "       checkin >= cast(? as date) - interval '1 month' and " +
+                        "       checkout::date > cast(? as date) and " +
+                        "       canceled = false",
+                resultSet -> {
+                    handler.checkout(resultSet.getString(1), resultSet.getLong(2));
+                },
+                Date.valueOf(day), Date.valueOf(day));
+    }
+}
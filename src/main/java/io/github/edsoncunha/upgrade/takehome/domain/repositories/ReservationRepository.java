@@ -1,22 +1,61 @@
 package io.github.edsoncunha.upgrade.takehome.domain.repositories;
 
 import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ReservationRepository extends CrudRepository<Reservation, Long> {
+public interface ReservationRepository extends CrudRepository<Reservation, Long>, ReservationJdbcOperations {
+    // active reservations of the campsite with at least one night in [first, last]. "canceled = false" matches the
+    // predicate of the partial GiST index on (campsite_id, stay), so the planner can use it. Stays are at most a month
+    // long, so the bounds on checkin don't leave any out, and only the partitions of the months around the period are read
     @Query(value = "select * from reservation " +
             "           where " +
-            "               :firstDayOfAccommodation >= checkin and " +
-            "               :lastDayOfAccommodation < checkout and  " +
-            "               canceled != true", nativeQuery = true)
-    List<Reservation> getReservationsInPeriod(@Param("firstDayOfAccommodation") LocalDate firstDayOfAccommodation, @Param("lastDayOfAccommodation") LocalDate lastDayOfAccommodation);
+            "               checkin >= cast(:firstDayOfAccommodation as date) - interval '1 month' and " +
+            "               checkin < cast(:lastDayOfAccommodation as date) + 1 and " +
+            "               campsite_id = :campsiteId and " +
+            "               stay && daterange(cast(:firstDayOfAccommodation as date), cast(:lastDayOfAccommodation as date), '[]') and " +
+            "               canceled = false", nativeQuery = true)
+    List<Reservation> getReservationsInPeriod(@Param("campsiteId") long campsiteId, @Param("firstDayOfAccommodation") LocalDate firstDayOfAccommodation, @Param("lastDayOfAccommodation") LocalDate lastDayOfAccommodation);
+
+    // the reservation, with its row locked until the end of the transaction: changes to the same reservation wait for
+    // each other, so each one sees whether the previous canceled it, and its nights are released only once
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from reservation r where r.id = :id")
+    Optional<Reservation> findByIdForUpdate(@Param("id") long id);
+
+    // same as forEachStayInPeriod, in a read-only transaction so it is served by the read replica, if there is one.
+    // Called from a booking transaction, it joins it and reads the primary
+    @Transactional(readOnly = true)
+    default void searchStaysInPeriod(long campsiteId, LocalDate firstDayOfAccommodation, LocalDate lastDayOfAccommodation, long ignoredReservationId, StayHandler handler) {
+        forEachStayInPeriod(campsiteId, firstDayOfAccommodation, lastDayOfAccommodation, ignoredReservationId, handler);
+    }
+
+    // reservations of the guest at the campsite with an id greater than afterId, in id order. They are read from the
+    // index on (email, campsite_id, id) and fetched from the database as the stream is consumed, so long histories are
+    // never loaded at once. The stream must be consumed, and closed, inside a transaction
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "50"))
+    @Query(value = "select * from reservation " +
+            "           where " +
+            "               email = :email and " +
+            "               campsite_id = :campsiteId and " +
+            "               id > :afterId " +
+            "           order by id " +
+            "           limit :limit", nativeQuery = true)
+    Stream<Reservation> streamByEmail(@Param("campsiteId") long campsiteId, @Param("email") String email, @Param("afterId") long afterId, @Param("limit") int limit);
 }
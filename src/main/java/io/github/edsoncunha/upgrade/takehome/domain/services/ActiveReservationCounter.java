@@ -0,0 +1,200 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services;
+
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.MaxActiveReservationsExceededException;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationRepository;
+import io.github.edsoncunha.upgrade.takehome.etc.Clock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Active reservations of each guest, i.e. not canceled and not checked out yet, kept in memory so the quota of
+ * {@code campsite.guestQuota.maxActiveReservations} is enforced without counting them in the database on every
+ * booking. A quota of 0 turns it off.
+ * <p>
+ * Bookings, updates and cancellations change the counts as they happen, inside their transaction, and the change is
+ * undone if the transaction rolls back. Checking the quota and counting a new reservation is a single atomic step per
+ * guest, so concurrent bookings of a guest on this node can't go past it. Each node only sees its own changes, so the
+ * counts are loaded from the database at startup and reconciled every {@code campsite.guestQuota.reconcileEvery}: a
+ * guest booking on several nodes at once may go past the quota by the bookings made on the others in between.
+ * <p>
+ * Guests are told apart by their email, trimmed and lower-cased, so the same guest can't get another quota by writing
+ * it differently.
+ */
+@Slf4j
+@Component
+public class ActiveReservationCounter {
+    private final ReservationRepository repository;
+    private final Clock clock;
+    private final int maxActiveReservations;
+
+    // checkout days, as epoch days, of the active reservations of each guest, by normalized email. Days already past
+    // are dropped as the guest's entry is changed
+    private volatile ConcurrentMap<String, long[]> checkouts = new ConcurrentHashMap<>();
+
+    public ActiveReservationCounter(ReservationRepository repository, Clock clock,
+                                    @Value("${campsite.guestQuota.maxActiveReservations:0}") int maxActiveReservations) {
+        this.repository = repository;
+        this.clock = clock;
+        this.maxActiveReservations = maxActiveReservations;
+    }
+
+    public boolean isEnabled() {
+        return maxActiveReservations > 0;
+    }
+
+    public int maxActiveReservations() {
+        return maxActiveReservations;
+    }
+
+    public int activeReservations(String email) {
+        long[] days = checkouts.get(guest(email));
+
+        return days == null ? 0 : activeDays(days, today()).length;
+    }
+
+    /**
+     * Counts a new reservation of the guest.
+     *
+     * @throws MaxActiveReservationsExceededException if the guest already holds as many active reservations as allowed
+     */
+    public void add(String email, LocalDate checkoutDate) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        String guest = guest(email);
+        long today = today();
+        long checkout = checkoutDate.toEpochDay();
+        // the rollback undoes the change in this map, not in one swapped in by a reconciliation meanwhile
+        ConcurrentMap<String, long[]> counts = checkouts;
+
+        // the exception leaves the entry as it was
+        counts.compute(guest, (key, days) -> {
+            long[] active = activeDays(days, today);
+
+            if (active.length >= maxActiveReservations) {
+                throw new MaxActiveReservationsExceededException(maxActiveReservations);
+            }
+
+            long[] changed = Arrays.copyOf(active, active.length + 1);
+            changed[active.length] = checkout;
+            return changed;
+        });
+
+        onRollback(() -> removeDay(counts, guest, checkout));
+    }
+
+    /**
+     * Stops counting a reservation of the guest, e.g. because it was canceled.
+     */
+    public void remove(String email, LocalDate checkoutDate) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        String guest = guest(email);
+        long checkout = checkoutDate.toEpochDay();
+        ConcurrentMap<String, long[]> counts = checkouts;
+
+        if (removeDay(counts, guest, checkout)) {
+            onRollback(() -> counts.merge(guest, new long[]{checkout}, ActiveReservationCounter::concat));
+        }
+    }
+
+    /**
+     * Counts a reservation of the guest under its new checkout day. A reservation that had already checked out counts
+     * as a new one, so it's subject to the quota.
+     */
+    public void move(String email, LocalDate previousCheckoutDate, LocalDate newCheckoutDate) {
+        remove(email, previousCheckoutDate);
+        add(email, newCheckoutDate);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${campsite.guestQuota.reconcileEvery:PT5M}", initialDelayString = "${campsite.guestQuota.reconcileEvery:PT5M}")
+    public void reconcile() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        try {
+            ConcurrentMap<String, long[]> loaded = new ConcurrentHashMap<>();
+
+            repository.forEachCheckoutAfter(clock.now().toLocalDate(),
+                    (email, checkout) -> loaded.merge(guest(email), new long[]{checkout}, ActiveReservationCounter::concat));
+
+            // changes made while loading are only seen by the next reconciliation if they weren't committed in time
+            checkouts = loaded;
+        } catch (RuntimeException e) {
+            log.warn("Active reservations could not be reconciled with the database, keeping the current counts", e);
+        }
+    }
+
+    private static boolean removeDay(ConcurrentMap<String, long[]> counts, String guest, long checkout) {
+        boolean[] removed = {false};
+
+        counts.computeIfPresent(guest, (key, days) -> {
+            for (int i = 0; i < days.length; i++) {
+                if (days[i] == checkout) {
+                    removed[0] = true;
+
+                    long[] changed = new long[days.length - 1];
+                    System.arraycopy(days, 0, changed, 0, i);
+                    System.arraycopy(days, i + 1, changed, i, days.length - i - 1);
+
+                    // null drops the guest's entry
+                    return changed.length == 0 ? null : changed;
+                }
+            }
+
+            return days;
+        });
+
+        return removed[0];
+    }
+
+    private static String guest(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private long today() {
+        return clock.now().toLocalDate().toEpochDay();
+    }
+
+    private static long[] activeDays(long[] days, long today) {
+        return days == null ? new long[0] : Arrays.stream(days).filter(day -> day > today).toArray();
+    }
+
+    private static long[] concat(long[] days, long[] moreDays) {
+        long[] all = Arrays.copyOf(days, days.length + moreDays.length);
+        System.arraycopy(moreDays, 0, all, days.length, moreDays.length);
+        return all;
+    }
+
+    private static void onRollback(Runnable compensation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    compensation.run();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,14 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services;
+
+import java.time.LocalDate;
+
+/**
+ * Tells every application node that availability changed, so they drop their cached searches for those nights.
+ */
+public interface AvailabilityInvalidationBus {
+    /**
+     * Announces a change on the nights [firstNight, lastNight] of a campsite. It's only delivered once the current
+     * transaction commits, and not at all if it rolls back.
+     */
+    void publish(long campsiteId, LocalDate firstNight, LocalDate lastNight);
+}
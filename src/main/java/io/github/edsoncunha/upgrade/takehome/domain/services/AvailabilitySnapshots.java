@@ -0,0 +1,173 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services;
+
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationRepository;
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.AvailabilityCalendar;
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.AvailabilitySnapshot;
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.OccupancyIndex;
+import io.github.edsoncunha.upgrade.takehome.etc.Clock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.github.edsoncunha.upgrade.takehome.domain.services.validation.ValidationDateAllowedRangeReservationRule.MAX_ALLOWED_DAYS_IN_ADVANCE;
+
+/**
+ * Occupancy of the whole bookable horizon, [today, today + 30], of each campsite, kept in memory so availability
+ * searches inside it are answered without going to the database or the cache.
+ * <p>
+ * A campsite's snapshot is built on its first search, rebuilt after every committed booking change at the campsite,
+ * on this node or on the others, and at midnight, then swapped in atomically. Only campsites that are searched or
+ * booked on this node get one: changes made on other nodes only rebuild snapshots this node already has, so a node
+ * serving many campsites doesn't load them all. Searches read whichever snapshot is
+ * current, and fall back to the database when there is none or when it doesn't cover them.
+ */
+@Slf4j
+@Component
+public class AvailabilitySnapshots {
+    private final ReservationRepository repository;
+    private final Clock clock;
+
+    private final ConcurrentMap<Long, AvailabilitySnapshot> current = new ConcurrentHashMap<>();
+    // campsites whose snapshot is being built, with the number of builds running
+    private final ConcurrentMap<Long, Integer> building = new ConcurrentHashMap<>();
+    private final AtomicLong generations = new AtomicLong();
+
+    public AvailabilitySnapshots(ReservationRepository repository, Clock clock) {
+        this.repository = repository;
+        this.clock = clock;
+    }
+
+    /**
+     * @return the available days of [firstDay, lastDay] at the campsite, or null if they aren't covered. As in
+     * {@link ReservationService#getAvailability}, days before today are left out
+     */
+    public AvailabilityCalendar availability(long campsiteId, LocalDate firstDay, LocalDate lastDay, int capacity) {
+        if (!covers(firstDay, lastDay)) {
+            return null;
+        }
+
+        LocalDate today = clock.now().toLocalDate();
+        AvailabilitySnapshot snapshot = current.get(campsiteId);
+
+        // a snapshot from before midnight starts on a day that can't be booked anymore
+        if (snapshot == null || !snapshot.firstDay().equals(today)) {
+            refreshQuietly(campsiteId);
+            snapshot = current.get(campsiteId);
+        }
+
+        if (snapshot == null || !snapshot.firstDay().equals(today)) {
+            return null;
+        }
+
+        return snapshot.availability(firstDay.isBefore(today) ? today : firstDay, lastDay, capacity);
+    }
+
+    /**
+     * Whether a search over [firstDay, lastDay] falls inside the bookable horizon, so it's answered by a snapshot
+     * unless the snapshot can't be built.
+     */
+    public boolean covers(LocalDate firstDay, LocalDate lastDay) {
+        return !lastDay.isAfter(clock.now().toLocalDate().plusDays(MAX_ALLOWED_DAYS_IN_ADVANCE));
+    }
+
+    /**
+     * Rebuilds the snapshot of the campsite once the current transaction commits, or right away when there is no
+     * transaction.
+     */
+    public void refreshAfterCommit(long campsiteId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refreshQuietly(campsiteId);
+            return;
+        }
+
+        // a transaction changing several ranges of a campsite only rebuilds its snapshot once
+        @SuppressWarnings("unchecked")
+        Set<Long> changedCampsites = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+
+        if (changedCampsites == null) {
+            changedCampsites = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, changedCampsites);
+            TransactionSynchronizationManager.registerSynchronization(refreshOnCommit(changedCampsites));
+        }
+
+        changedCampsites.add(campsiteId);
+    }
+
+    /**
+     * Rebuilds the snapshot of the campsite if this node has one, or is building one, after a change committed on
+     * another node. A build running already may have read the campsite before the change, so it's followed by another.
+     */
+    public void refreshIfKept(long campsiteId) {
+        if (current.containsKey(campsiteId) || building.containsKey(campsiteId)) {
+            refreshQuietly(campsiteId);
+        }
+    }
+
+    @Scheduled(cron = "0 0 0 * * *")
+    public void refreshAll() {
+        current.keySet().forEach(this::refreshQuietly);
+    }
+
+    /**
+     * Drops every snapshot. They are built again by the next search at each campsite.
+     */
+    public void clear() {
+        current.clear();
+    }
+
+    public void refresh(long campsiteId) {
+        // before reading, so a change notified from now on is seen by refreshIfKept
+        building.merge(campsiteId, 1, Integer::sum);
+
+        try {
+            long generation = generations.incrementAndGet();
+
+            LocalDate today = clock.now().toLocalDate();
+            LocalDate lastDay = today.plusDays(MAX_ALLOWED_DAYS_IN_ADVANCE);
+
+            OccupancyIndex.Builder occupancy = OccupancyIndex.builder(today, lastDay);
+            repository.forEachStayInPeriod(campsiteId, today, lastDay, 0, occupancy::add);
+
+            AvailabilitySnapshot snapshot = new AvailabilitySnapshot(generation, occupancy.build());
+
+            // refreshes may finish out of order. The one that started last saw every change committed before it started
+            current.merge(campsiteId, snapshot, (previous, next) -> previous.generation() > next.generation() ? previous : next);
+        } finally {
+            building.computeIfPresent(campsiteId, (id, builds) -> builds == 1 ? null : builds - 1);
+        }
+    }
+
+    private void refreshQuietly(long campsiteId) {
+        try {
+            refresh(campsiteId);
+        } catch (RuntimeException e) {
+            // the booking is committed already, it must not fail because of this. Searches go to the database
+            // until the next refresh succeeds
+            log.warn("Availability snapshot of campsite {} could not be refreshed, dropping it", campsiteId, e);
+            current.remove(campsiteId);
+        }
+    }
+
+    private TransactionSynchronization refreshOnCommit(Set<Long> changedCampsites) {
+        return new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                changedCampsites.forEach(AvailabilitySnapshots.this::refreshQuietly);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(AvailabilitySnapshots.this);
+            }
+        };
+    }
+}
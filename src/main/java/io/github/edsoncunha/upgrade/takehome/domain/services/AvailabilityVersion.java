@@ -0,0 +1,87 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the availability served by this node, increased whenever it may have changed: after a booking change is
+ * committed here, after the node hears about a change committed elsewhere (once its cache and snapshots are up to
+ * date), when it stops hearing about them, and at midnight.
+ * <p>
+ * The version only means something on the node that issued it, so {@link #tag()} carries a random id of the node as
+ * well: a tag handed out by one node never matches the tag of another, whatever their versions.
+ * <p>
+ * The version only follows the primary. A replica may not have replayed a change yet when the version is increased, so
+ * a search read from it would be tagged with the new version and its stale 304s would last until the next change:
+ * such searches aren't tagged (see {@link #tagsReplicaReads()}).
+ */
+@Component
+public class AvailabilityVersion {
+    private final String node = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong version = new AtomicLong();
+    private final boolean readReplica;
+
+    public AvailabilityVersion(@Value("${campsite.readReplica.url:}") String readReplicaUrl) {
+        this.readReplica = !readReplicaUrl.isEmpty();
+    }
+
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * Identifies the current version among every version of every node.
+     */
+    public String tag() {
+        return node + "." + version.get();
+    }
+
+    /**
+     * Entity tag of an availability search answered at the current version, one per representation (Accept header).
+     * It must be taken before the availability is read: a change in between makes the tag older than the response,
+     * and the next request gets the response again, never the other way round.
+     */
+    public String etag(long campsiteId, LocalDate startDate, LocalDate endDate, String accept) {
+        return "\"" + campsiteId + "/" + startDate + "/" + endDate + "/" + tag() +
+                "/" + Integer.toHexString(Objects.hashCode(accept)) + "\"";
+    }
+
+    /**
+     * Whether searches that aren't answered by the availability snapshots, which are built from the primary, may be
+     * tagged. Not when they are read from a replica.
+     */
+    public boolean tagsReplicaReads() {
+        return !readReplica;
+    }
+
+    @Scheduled(cron = "0 0 0 * * *")
+    public void increment() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Increments the version once the current transaction commits, or right away when there is no transaction.
+     * Synchronizations registered earlier, such as snapshot refreshes, run before it.
+     */
+    public void incrementAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            increment();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                increment();
+            }
+        });
+    }
+}
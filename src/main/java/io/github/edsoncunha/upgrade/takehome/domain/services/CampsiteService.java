@@ -0,0 +1,66 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Campsite;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.CampsiteNotFoundException;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.CampsiteRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.StreamSupport;
+
+/**
+ * The campsites operated by the application. Their capacity is read on every booking and availability search, so
+ * it's kept in memory for {@code campsite.campsites.rememberFor}: that is how long other nodes may take to see a
+ * capacity change.
+ */
+@Service
+public class CampsiteService {
+    private final CampsiteRepository repository;
+
+    private final Cache<Long, Integer> capacities;
+
+    public CampsiteService(CampsiteRepository repository,
+                           @Value("${campsite.campsites.rememberFor:1m}") Duration rememberFor) {
+        this.repository = repository;
+        this.capacities = Caffeine.newBuilder()
+                .expireAfterWrite(rememberFor)
+                .build();
+    }
+
+    /**
+     * @throws CampsiteNotFoundException if there is no such campsite
+     */
+    public int capacityOf(long campsiteId) {
+        return capacities.get(campsiteId, id -> repository.findById(id)
+                .map(Campsite::getCapacity)
+                .orElseThrow(CampsiteNotFoundException::new));
+    }
+
+    /**
+     * Capacity of the campsite if it's in memory, null otherwise. Lets callers that must not block on the database
+     * decide where to look it up.
+     */
+    public Integer cachedCapacityOf(long campsiteId) {
+        return capacities.getIfPresent(campsiteId);
+    }
+
+    public List<Long> campsiteIds() {
+        return StreamSupport.stream(repository.findAll().spliterator(), false)
+                .map(Campsite::getId)
+                .toList();
+    }
+
+    @Transactional
+    public void updateCapacity(long campsiteId, int capacity) {
+        Campsite campsite = repository.findById(campsiteId).orElseThrow(CampsiteNotFoundException::new);
+        campsite.setCapacity(capacity);
+        repository.save(campsite);
+
+        capacities.put(campsiteId, capacity);
+    }
+}
@@ -0,0 +1,15 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services;
+
+/**
+ * How concurrent bookings are kept from exceeding the campsite capacity.
+ */
+public enum ConcurrencyControl {
+    /**
+     * Bookings claim their nights in the occupancy ledger, whose row locks only serialize bookings sharing a night.
+     */
+    ROW_LOCK,
+    /**
+     * Bookings additionally hold one advisory lock per night they touch, taken before any row is written.
+     */
+    ADVISORY_LOCK
+}
@@ -0,0 +1,114 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.IdempotencyKeyReusedException;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.ReservationNotFoundException;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.IdempotencyKeyRepository;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.IdempotencyKeyRepository.IdempotencyKey;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * Reservations identified by a key chosen by the client, so retrying a request never books twice.
+ * <p>
+ * Keys are kept in the {@code idempotency_key} table, registered in the same transaction as the booking: a retry
+ * arriving while the first request is still running waits on the key's row, and a request that fails leaves no key
+ * behind, so it can be retried. Recently used keys are also kept in memory, so most retries don't reach the database.
+ * <p>
+ * Keys are remembered for {@code campsite.idempotencyKeys.rememberFor}, in memory and in the table: older ones are
+ * purged every {@code campsite.idempotencyKeys.purgeEvery}, and a request reusing one books again.
+ */
+@Slf4j
+@Service
+public class IdempotentReservationService {
+    // length of the idempotency_key.key column
+    public static final int MAX_KEY_LENGTH = 255;
+
+    private final ReservationService reservationService;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ReservationRepository reservationRepository;
+
+    private final Duration rememberFor;
+    private final Cache<String, IdempotencyKey> recentKeys;
+
+    public IdempotentReservationService(ReservationService reservationService, IdempotencyKeyRepository idempotencyKeyRepository, ReservationRepository reservationRepository,
+                                        @Value("${campsite.idempotencyKeys.recentlyUsed:10000}") long recentlyUsed,
+                                        @Value("${campsite.idempotencyKeys.rememberFor:24h}") Duration rememberFor) {
+        this.reservationService = reservationService;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.reservationRepository = reservationRepository;
+        this.rememberFor = rememberFor;
+        this.recentKeys = Caffeine.newBuilder()
+                .maximumSize(recentlyUsed)
+                .expireAfterWrite(rememberFor)
+                .build();
+    }
+
+    /**
+     * Books the stay, unless a reservation was already made with the same key. In that case the reservation is
+     * returned as it is now, without booking again.
+     *
+     * @throws IdempotencyKeyReusedException if the key was used for a different request
+     */
+    @Transactional
+    public Reservation reserve(String idempotencyKey, long campsiteId, String userEmail, LocalDate arrivalDate, int lengthOfStay) {
+        String fingerprint = campsiteId + "|" + userEmail + "|" + arrivalDate + "|" + lengthOfStay;
+
+        IdempotencyKey known = recentKeys.getIfPresent(idempotencyKey);
+
+        if (known == null) {
+            known = idempotencyKeyRepository.claim(idempotencyKey, fingerprint).orElse(null);
+        }
+
+        if (known == null) {
+            Reservation reservation = reservationService.reserve(campsiteId, userEmail, arrivalDate, lengthOfStay);
+            idempotencyKeyRepository.complete(idempotencyKey, reservation.getId());
+            rememberAfterCommit(new IdempotencyKey(idempotencyKey, fingerprint, reservation.getId()));
+            return reservation;
+        }
+
+        if (!known.fingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyReusedException(idempotencyKey);
+        }
+
+        recentKeys.put(idempotencyKey, known);
+
+        return reservationRepository.findById(known.reservationId()).orElseThrow(ReservationNotFoundException::new);
+    }
+
+    @Transactional
+    @Scheduled(fixedDelayString = "${campsite.idempotencyKeys.purgeEvery:PT1H}")
+    public void purgeExpiredKeys() {
+        int purged = idempotencyKeyRepository.deleteOlderThan(rememberFor);
+
+        if (purged > 0) {
+            log.info("{} idempotency keys older than {} purged", purged, rememberFor);
+        }
+    }
+
+    // a key whose booking is rolled back was never used
+    private void rememberAfterCommit(IdempotencyKey key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recentKeys.put(key.key(), key);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentKeys.put(key.key(), key);
+            }
+        });
+    }
+}
@@ -3,9 +3,14 @@ package io.github.edsoncunha.upgrade.takehome.domain.services;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Duration;
+import java.util.Collection;
 import java.util.function.Supplier;
 
 public interface LockManager {
+    /**
+     * Runs {@code supplier} holding every lock in {@code ids}. Locks are taken in ascending order, so callers locking
+     * overlapping sets can't deadlock on each other.
+     */
     @Transactional
-    <T> T lock(long id, Duration timeout, Supplier<T> supplier);
+    <T> T lock(Collection<Long> ids, Duration timeout, Supplier<T> supplier);
 }
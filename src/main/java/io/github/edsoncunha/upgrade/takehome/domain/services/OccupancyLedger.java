@@ -0,0 +1,32 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services;
+
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.OccupancyIndex;
+
+import java.time.LocalDate;
+
+/**
+ * Number of booked places per night and campsite, kept in sync with the reservations inside the booking transaction.
+ * Every campsite has its own rows, so bookings at different campsites never wait for each other.
+ */
+public interface OccupancyLedger {
+    /**
+     * Books one place on every night in [checkinDate, checkoutDate), as long as none of them is at capacity.
+     *
+     * @return false if some night is full. Nights claimed so far are only given back by rolling back the transaction.
+     */
+    boolean claim(long campsiteId, LocalDate checkinDate, LocalDate checkoutDate, int capacity);
+
+    void release(long campsiteId, LocalDate checkinDate, LocalDate checkoutDate);
+
+    /**
+     * Locks the nights in [firstNight, lastCheckoutDate) until the end of the transaction and returns how many
+     * places are booked on each of them.
+     */
+    OccupancyIndex lockNights(long campsiteId, LocalDate firstNight, LocalDate lastCheckoutDate);
+
+    /**
+     * Adds the places taken in {@code bookedNights} without checking capacity. Callers must have checked it against
+     * {@link #lockNights(long, LocalDate, LocalDate)} in the same transaction.
+     */
+    void book(long campsiteId, OccupancyIndex bookedNights);
+}
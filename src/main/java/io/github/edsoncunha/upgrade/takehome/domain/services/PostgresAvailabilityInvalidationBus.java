@@ -0,0 +1,168 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services;
+
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.AvailabilityCache;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+import static io.github.edsoncunha.upgrade.takehome.domain.services.ReservationService.AVAILABILITY_SEARCH_CACHE_NAME;
+
+/**
+ * Availability changes travel as Postgres notifications: {@code NOTIFY} is transactional, so the other nodes only
+ * hear about a booking once it is committed.
+ * <p>
+ * Every node listens on a dedicated connection, opened outside of the pool so it doesn't take a slot from the
+ * requests. Notifications sent while that connection is down are lost, so the whole local cache, and the snapshots of
+ * every campsite, are dropped every time it (re)connects.
+ * <p>
+ * The {@link AvailabilityVersion} is increased once a change is applied locally, so no tag handed out afterwards
+ * stands for availability from before the change.
+ */
+@Slf4j
+@Component
+public class PostgresAvailabilityInvalidationBus implements AvailabilityInvalidationBus, SmartLifecycle {
+    public static final String CHANNEL = "availability_invalidation";
+
+    private static final int POLL_TIMEOUT_MILLIS = 500;
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSourceProperties dataSourceProperties;
+    private final CacheManager cacheManager;
+    private final AvailabilitySnapshots availabilitySnapshots;
+    private final AvailabilityVersion availabilityVersion;
+
+    private volatile boolean running;
+    private volatile boolean listening;
+    private Thread listener;
+
+    public PostgresAvailabilityInvalidationBus(JdbcTemplate jdbcTemplate, DataSourceProperties dataSourceProperties, CacheManager cacheManager, AvailabilitySnapshots availabilitySnapshots, AvailabilityVersion availabilityVersion) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSourceProperties = dataSourceProperties;
+        this.cacheManager = cacheManager;
+        this.availabilitySnapshots = availabilitySnapshots;
+        this.availabilityVersion = availabilityVersion;
+    }
+
+    @Override
+    public void publish(long campsiteId, LocalDate firstNight, LocalDate lastNight) {
+        jdbcTemplate.query("select pg_notify(?, ?)", resultSet -> {
+        }, CHANNEL, campsiteId + "/" + firstNight + "/" + lastNight);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+
+        listener = new Thread(this::listen, "availability-invalidation-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+
+        try {
+            listener.join(POLL_TIMEOUT_MILLIS * 2L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean isListening() {
+        return listening;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("listen " + CHANNEL);
+                }
+
+                clearLocalCache();
+                listening = true;
+                log.info("Listening to availability changes from other nodes");
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            evictLocally(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                listening = false;
+                // nothing must stop the listener, or this node would serve stale availability until restarted
+                if (running) {
+                    log.warn("Availability changes listener failed, reconnecting in {}ms", RECONNECT_DELAY_MILLIS, e);
+                    sleep();
+                }
+            }
+        }
+
+        listening = false;
+    }
+
+    private void evictLocally(String nights) {
+        String[] range = nights.split("/");
+        long campsiteId = Long.parseLong(range[0]);
+        LocalDate firstNight = LocalDate.parse(range[1]);
+        LocalDate lastNight = LocalDate.parse(range[2]);
+
+        Cache availabilityCache = cacheManager.getCache(AVAILABILITY_SEARCH_CACHE_NAME);
+        if (availabilityCache instanceof AvailabilityCache rangeAwareCache) {
+            rangeAwareCache.evictOverlapping(campsiteId, firstNight, lastNight);
+        } else if (availabilityCache != null) {
+            availabilityCache.invalidate();
+        }
+
+        // campsites this node doesn't serve stay without a snapshot
+        availabilitySnapshots.refreshIfKept(campsiteId);
+        availabilityVersion.increment();
+    }
+
+    private void clearLocalCache() {
+        Cache availabilityCache = cacheManager.getCache(AVAILABILITY_SEARCH_CACHE_NAME);
+        if (availabilityCache != null) {
+            availabilityCache.invalidate();
+        }
+
+        // snapshots are built again by the next search at each campsite
+        availabilitySnapshots.clear();
+        availabilityVersion.increment();
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(RECONNECT_DELAY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
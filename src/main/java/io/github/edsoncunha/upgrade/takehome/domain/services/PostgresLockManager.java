@@ -1,31 +1,81 @@
 package io.github.edsoncunha.upgrade.takehome.domain.services;
 
 import io.github.edsoncunha.upgrade.takehome.domain.exceptions.LockNotAcquiredException;
-import lombok.AllArgsConstructor;
-import org.springframework.beans.factory.annotation.Autowired;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.time.Duration;
+import java.util.Collection;
 import java.util.function.Supplier;
 
+/**
+ * Transaction level advisory locks. By default they are polled with {@code pg_try_advisory_xact_lock} and retried
+ * with backoff. With {@code campsite.virtualThreads} enabled, the request thread is cheap to park, so it blocks on
+ * {@code pg_advisory_xact_lock} instead and Postgres does the waiting, bounded by {@code lock_timeout} and
+ * {@code statement_timeout}.
+ */
 @Component
-@AllArgsConstructor
 public class PostgresLockManager implements LockManager {
-    @Autowired
-    private JdbcTemplate jdbcTemplate;
+    public static final String ATTEMPTS_METRIC = "campsite.lock.attempts";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean blocking;
+
+    private final Timer acquiredWait;
+    private final Timer failedWait;
+    private final Counter acquiredAttempts;
+    private final Counter busyAttempts;
+    private final Counter failures;
+
+    public PostgresLockManager(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                               @Value("${campsite.virtualThreads:false}") boolean blocking) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blocking = blocking;
+
+        this.acquiredWait = waitTimer(meterRegistry, "acquired");
+        this.failedWait = waitTimer(meterRegistry, "failed");
+        this.acquiredAttempts = meterRegistry.counter(ATTEMPTS_METRIC, "result", "acquired");
+        this.busyAttempts = meterRegistry.counter(ATTEMPTS_METRIC, "result", "busy");
+        this.failures = Counter.builder("campsite.lock.failures")
+                .description("Lock acquisitions given up after all attempts, surfaced as LockNotAcquiredException")
+                .register(meterRegistry);
+    }
 
     @Transactional
     @Override
-    public <T> T lock(long id, Duration timeout, Supplier<T> supplier) {
-        acquireLock(id, timeout);
-        // only runs if lock is acquired, so we have a critical section below this line
+    public <T> T lock(Collection<Long> ids, Duration timeout, Supplier<T> supplier) {
+        long start = System.nanoTime();
+
+        try {
+            if (blocking) {
+                waitForLocks(ids, timeout);
+            } else {
+                acquireLocks(ids, timeout);
+            }
+        } catch (LockNotAcquiredException e) {
+            failedWait.record(Duration.ofNanos(System.nanoTime() - start));
+            failures.increment();
+            throw e;
+        }
+
+        acquiredWait.record(Duration.ofNanos(System.nanoTime() - start));
+
+        // only runs if all locks are acquired, so we have a critical section below this line
         return supplier.get();
     }
 
-    private void acquireLock(long id, Duration timeout) {
+    private void acquireLocks(Collection<Long> ids, Duration timeout) {
+        Long[] sortedIds = ids.stream().sorted().distinct().toArray(Long[]::new);
+
         RetryTemplate retryTemplate
                 = RetryTemplate.builder()
                 .maxAttempts(3)
@@ -35,13 +85,74 @@ public class PostgresLockManager implements LockManager {
                 .build();
 
         retryTemplate.execute(retryContext -> {
-            boolean acquired = Boolean.TRUE.equals(jdbcTemplate
-                    .queryForObject("select pg_try_advisory_xact_lock(?)", Boolean.class, id));
+            // all locks are requested in a single round trip, in ascending order. A failed attempt holds none of them
+            // (see V8__try_advisory_xact_locks.sql), so two bookings backing off can't each keep part of the other's
+            // nights until both run out of attempts
+            boolean acquired = Boolean.TRUE.equals(jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement("select try_advisory_xact_locks(?)");
+                statement.setArray(1, connection.createArrayOf("bigint", sortedIds));
+                return statement;
+            }, resultSet -> resultSet.next() && resultSet.getBoolean(1)));
 
             if (!acquired) {
+                busyAttempts.increment();
                 throw new LockNotAcquiredException("Advisory lock not acquired");
             }
+
+            acquiredAttempts.increment();
             return null;
         });
     }
+
+    private void waitForLocks(Collection<Long> ids, Duration timeout) {
+        Long[] sortedIds = ids.stream().sorted().distinct().toArray(Long[]::new);
+
+        // lock_timeout bounds the wait for each lock, and statement_timeout the wait for all of them: a batch locking
+        // many nights still gives up after the timeout. Both only apply to the lock statement, the previous values are
+        // restored right after it, so the rest of the transaction keeps the server settings
+        String timeoutSetting = Math.max(1, timeout.toMillis()) + "ms"; // 0 would mean waiting forever
+        String[] previousTimeouts = jdbcTemplate.queryForObject(
+                "select current_setting('lock_timeout'), current_setting('statement_timeout'), " +
+                        "set_config('lock_timeout', ?, true), set_config('statement_timeout', ?, true)",
+                (resultSet, row) -> new String[]{resultSet.getString(1), resultSet.getString(2)},
+                timeoutSetting, timeoutSetting);
+
+        try {
+            // unnest keeps the array order, so locks are taken in ascending order and two bookings can't deadlock
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        "select pg_advisory_xact_lock(id) from unnest(?) as id");
+                statement.setArray(1, connection.createArrayOf("bigint", sortedIds));
+                return statement;
+            }, resultSet -> {
+            });
+        } catch (DataAccessException e) {
+            if (!isTimeout(e)) {
+                throw e;
+            }
+
+            // the transaction is aborted at this point, it's rolled back when the exception leaves lock()
+            busyAttempts.increment();
+            throw new LockNotAcquiredException("Advisory lock not acquired within " + timeout.toMillis() + "ms");
+        }
+
+        jdbcTemplate.query("select set_config('lock_timeout', ?, true), set_config('statement_timeout', ?, true)",
+                resultSet -> {
+                }, previousTimeouts[0], previousTimeouts[1]);
+        acquiredAttempts.increment();
+    }
+
+    // lock_timeout (lock_not_available) or statement_timeout (query_canceled)
+    private static boolean isTimeout(DataAccessException e) {
+        return e.getMostSpecificCause() instanceof SQLException cause
+                && ("55P03".equals(cause.getSQLState()) || "57014".equals(cause.getSQLState()));
+    }
+
+    private static Timer waitTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("campsite.lock.wait")
+                .description("Time spent acquiring advisory locks, including retries")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 }
@@ -0,0 +1,97 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services;
+
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.OccupancyIndex;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@AllArgsConstructor
+@Transactional
+public class PostgresOccupancyLedger implements OccupancyLedger {
+    // rows are locked in day order, so two bookings sharing nights can't deadlock on each other
+    private static final String NIGHTS_LOCKED_IN_ORDER = "select day from daily_occupancy " +
+            "           where campsite_id = ? and day >= ? and day < ? " +
+            "           order by day " +
+            "           for update";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public boolean claim(long campsiteId, LocalDate checkinDate, LocalDate checkoutDate, int capacity) {
+        int nights = ensureNightsExist(campsiteId, checkinDate, checkoutDate);
+
+        int claimedNights = jdbcTemplate.update("update daily_occupancy set booked = booked + 1 " +
+                "           where campsite_id = ? and day in (" + NIGHTS_LOCKED_IN_ORDER + ") and " +
+                "               booked < ?", campsiteId, campsiteId, checkinDate, checkoutDate, capacity);
+
+        return claimedNights == nights;
+    }
+
+    @Override
+    public void release(long campsiteId, LocalDate checkinDate, LocalDate checkoutDate) {
+        int nights = (int) ChronoUnit.DAYS.between(checkinDate, checkoutDate);
+
+        // a night released more often than it was claimed goes below 0, and daily_occupancy_booked_check fails it
+        int releasedNights = jdbcTemplate.update("update daily_occupancy set booked = booked - 1 " +
+                "           where campsite_id = ? and day in (" + NIGHTS_LOCKED_IN_ORDER + ")",
+                campsiteId, campsiteId, checkinDate, checkoutDate);
+
+        if (releasedNights != nights) {
+            throw new IllegalStateException("Releasing " + nights + " nights of campsite " + campsiteId + " from " +
+                    checkinDate + ", but only " + releasedNights + " are in the ledger");
+        }
+    }
+
+    @Override
+    public OccupancyIndex lockNights(long campsiteId, LocalDate firstNight, LocalDate lastCheckoutDate) {
+        ensureNightsExist(campsiteId, firstNight, lastCheckoutDate);
+
+        OccupancyIndex.Builder occupancy = OccupancyIndex.builder(firstNight, lastCheckoutDate.minusDays(1));
+
+        jdbcTemplate.query("select day, booked from daily_occupancy " +
+                        "           where campsite_id = ? and day >= ? and day < ? " +
+                        "           order by day " +
+                        "           for update",
+                resultSet -> {
+                    occupancy.addNight(resultSet.getObject("day", LocalDate.class).toEpochDay(), resultSet.getInt("booked"));
+                }, campsiteId, firstNight, lastCheckoutDate);
+
+        return occupancy.build();
+    }
+
+    @Override
+    public void book(long campsiteId, OccupancyIndex bookedNights) {
+        List<Object[]> increments = new ArrayList<>();
+
+        for (int i = 0; i < bookedNights.days(); i++) {
+            LocalDate night = bookedNights.firstDay().plusDays(i);
+            int places = bookedNights.occupancyAt(night);
+
+            if (places > 0) {
+                increments.add(new Object[]{places, campsiteId, night});
+            }
+        }
+
+        jdbcTemplate.batchUpdate("update daily_occupancy set booked = booked + ? where campsite_id = ? and day = ?", increments);
+    }
+
+    // returns the number of nights in [checkinDate, checkoutDate)
+    private int ensureNightsExist(long campsiteId, LocalDate checkinDate, LocalDate checkoutDate) {
+        int nights = (int) ChronoUnit.DAYS.between(checkinDate, checkoutDate);
+
+        jdbcTemplate.update("insert into daily_occupancy (campsite_id, day) " +
+                "           select ?, cast(? as date) + night from generate_series(0, ? - 1) night " +
+                "           on conflict do nothing", campsiteId, checkinDate, nights);
+
+        return nights;
+    }
+}
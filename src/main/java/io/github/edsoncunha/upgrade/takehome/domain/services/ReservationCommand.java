@@ -0,0 +1,17 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services;
+
+import java.time.LocalDate;
+
+/**
+ * A stay to be booked, as submitted by a guest.
+ */
+public record ReservationCommand(String email, LocalDate arrivalDate, int lengthOfStay) {
+    /**
+     * Length of the {@code reservation.email} column.
+     */
+    public static final int MAX_EMAIL_LENGTH = 127;
+
+    public LocalDate checkoutDate() {
+        return arrivalDate.plusDays(lengthOfStay);
+    }
+}
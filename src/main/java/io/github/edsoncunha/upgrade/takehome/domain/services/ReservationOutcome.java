@@ -0,0 +1,21 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.ReservationConstraintException;
+
+/**
+ * Result of booking a {@link ReservationCommand}: either the created reservation or the constraint it violated.
+ */
+public record ReservationOutcome(Reservation reservation, ReservationConstraintException violation) {
+    public static ReservationOutcome created(Reservation reservation) {
+        return new ReservationOutcome(reservation, null);
+    }
+
+    public static ReservationOutcome rejected(ReservationConstraintException violation) {
+        return new ReservationOutcome(null, violation);
+    }
+
+    public boolean isCreated() {
+        return reservation != null;
+    }
+}
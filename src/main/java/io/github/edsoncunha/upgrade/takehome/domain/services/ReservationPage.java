@@ -0,0 +1,13 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+
+import java.util.List;
+
+/**
+ * A page of a guest's reservations, in id order.
+ *
+ * @param next the id to ask for the following page after, or null if this is the last page
+ */
+public record ReservationPage(List<Reservation> reservations, Long next) {
+}
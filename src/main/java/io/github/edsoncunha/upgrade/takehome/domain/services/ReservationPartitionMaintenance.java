@@ -0,0 +1,132 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services;
+
+import io.github.edsoncunha.upgrade.takehome.etc.Clock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Keeps the monthly partitions of the reservation table (see V6__reservation_partitions.sql): the partitions of the
+ * next {@code campsite.reservationPartitions.monthsAhead} months are created ahead of the bookings that need them,
+ * and the partitions of months that ended more than {@code campsite.reservationPartitions.archiveAfterMonths} ago
+ * are detached and moved to the reservation_archive schema, where they no longer weigh on the application's queries.
+ * Check-ins that landed in reservation_default, because their month had no partition yet, are moved to the partition
+ * of their month.
+ * <p>
+ * Runs at startup and every night. Every node runs it, one at a time.
+ */
+@Slf4j
+@Component
+public class ReservationPartitionMaintenance {
+    // advisory lock held while the partitions are changed. Doesn't collide with the night locks of ReservationService
+    private static final long MAINTENANCE_LOCK_KEY = 0x7FL << 56;
+
+    private static final String ARCHIVE_SCHEMA = "reservation_archive";
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'reservation_p'uuuu_MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final int monthsAhead;
+    private final int archiveAfterMonths;
+
+    public ReservationPartitionMaintenance(JdbcTemplate jdbcTemplate,
+                                           TransactionTemplate transactionTemplate,
+                                           Clock clock,
+                                           @Value("${campsite.reservationPartitions.monthsAhead:3}") int monthsAhead,
+                                           @Value("${campsite.reservationPartitions.archiveAfterMonths:24}") int archiveAfterMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.clock = clock;
+        this.monthsAhead = monthsAhead;
+        this.archiveAfterMonths = archiveAfterMonths;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "0 30 0 * * *")
+    public void maintainQuietly() {
+        try {
+            maintain();
+        } catch (RuntimeException e) {
+            // bookings keep working meanwhile: check-ins without a partition land in reservation_default, and are moved to
+            // their partition once it's created
+            log.warn("Reservation partitions could not be maintained, will try again tomorrow", e);
+        }
+    }
+
+    public void maintain() {
+        YearMonth currentMonth = YearMonth.from(clock.now());
+
+        // the job didn't run in time for these months, e.g. it failed for longer than monthsAhead
+        List<YearMonth> monthsInDefault = monthsInDefaultPartition();
+
+        if (!monthsInDefault.isEmpty()) {
+            log.warn("Check-ins of {} landed in reservation_default, moving them to their partitions", monthsInDefault);
+        }
+
+        for (YearMonth month : monthsInDefault) {
+            ensurePartition(month);
+        }
+
+        for (int i = 0; i <= monthsAhead; i++) {
+            ensurePartition(currentMonth.plusMonths(i));
+        }
+
+        // a month is archived once all of it is older than archiveAfterMonths
+        YearMonth lastArchivedMonth = currentMonth.minusMonths(archiveAfterMonths + 1L);
+
+        for (String partition : monthlyPartitions()) {
+            if (!YearMonth.parse(partition, PARTITION_NAME).isAfter(lastArchivedMonth)) {
+                archive(partition);
+            }
+        }
+    }
+
+    private void ensurePartition(YearMonth month) {
+        inMaintenanceTransaction(() -> jdbcTemplate.queryForList("select ensure_reservation_partition(?::date)",
+                month.atDay(1).toString()));
+    }
+
+    private List<YearMonth> monthsInDefaultPartition() {
+        return jdbcTemplate.queryForList("select distinct to_char(checkin, 'YYYY-MM') from reservation_default order by 1", String.class)
+                .stream()
+                .map(YearMonth::parse)
+                .toList();
+    }
+
+    private void archive(String partition) {
+        // detaching takes an exclusive lock on the reservation table in Postgres 12, but it's a catalog change only
+        inMaintenanceTransaction(() -> {
+            jdbcTemplate.execute("alter table reservation detach partition " + partition);
+            jdbcTemplate.execute("alter table " + partition + " set schema " + ARCHIVE_SCHEMA);
+        });
+
+        log.info("Reservation partition {} archived to {}", partition, ARCHIVE_SCHEMA);
+    }
+
+    private List<String> monthlyPartitions() {
+        return jdbcTemplate.queryForList("select child.relname from pg_inherits " +
+                        "   join pg_class child on child.oid = pg_inherits.inhrelid " +
+                        "   where " +
+                        "       pg_inherits.inhparent = 'reservation'::regclass and " +
+                        "       child.relname ~ '^reservation_p[0-9]{4}_[0-9]{2}$' " +
+                        "   order by child.relname",
+                String.class);
+    }
+
+    private void inMaintenanceTransaction(Runnable action) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.queryForList("select pg_advisory_xact_lock(?)", MAINTENANCE_LOCK_KEY);
+            action.run();
+        });
+    }
+}
@@ -0,0 +1,243 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.BookingOverloadedException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Books single reservations through one writer thread instead of from every request thread.
+ * <p>
+ * Requests put their stay in a bounded queue and wait for its outcome. The writer takes whatever is queued, up to
+ * {@code maxBatchSize} stays, and books them in order with {@link ReservationService#reserveAll}, one call per
+ * campsite in the batch: the nights are locked once and each campsite's stays are committed in a single
+ * transaction. So under a burst, bookings don't hold a pool connection each while contending for the same locks, they
+ * line up and get committed together. A batch that fails
+ * as a whole is booked again one stay at a time, so a stay fails only its own caller.
+ * <p>
+ * Opt-in with {@code campsite.sequencer.enabled}. When disabled, bookings go straight to {@link ReservationService}.
+ */
+@Slf4j
+@Component
+public class ReservationSequencer implements SmartLifecycle {
+    public static final String BATCH_SIZE_METRIC = "campsite.sequencer.batch.size";
+    public static final String QUEUE_SIZE_METRIC = "campsite.sequencer.queue.size";
+
+    private static final int POLL_TIMEOUT_MILLIS = 500;
+
+    private final ReservationService reservationService;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final Duration timeout;
+
+    private final BlockingQueue<PendingReservation> queue;
+    private final DistributionSummary batchSizes;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public ReservationSequencer(ReservationService reservationService, MeterRegistry meterRegistry,
+                                @Value("${campsite.sequencer.enabled:false}") boolean enabled,
+                                @Value("${campsite.sequencer.queueSize:4096}") int queueSize,
+                                @Value("${campsite.sequencer.maxBatchSize:256}") int maxBatchSize,
+                                @Value("${campsite.sequencer.timeout:5s}") Duration timeout) {
+        this.reservationService = reservationService;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.timeout = timeout;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.batchSizes = DistributionSummary.builder(BATCH_SIZE_METRIC)
+                .description("Stays booked per transaction by the reservation sequencer")
+                .register(meterRegistry);
+
+        meterRegistry.gauge(QUEUE_SIZE_METRIC, queue, BlockingQueue::size);
+    }
+
+    /**
+     * Same contract as {@link ReservationService#reserve}.
+     *
+     * @throws BookingOverloadedException if the queue is full, or the writer hasn't taken the stay within
+     *                                    {@code timeout}. A stay already taken by the writer is waited for instead, as
+     *                                    it may still be booked
+     */
+    public Reservation reserve(long campsiteId, String userEmail, LocalDate arrivalDate, int lengthOfStay) {
+        if (!enabled) {
+            return reservationService.reserve(campsiteId, userEmail, arrivalDate, lengthOfStay);
+        }
+
+        PendingReservation pending = new PendingReservation(campsiteId, new ReservationCommand(userEmail, arrivalDate, lengthOfStay));
+
+        if (!running || !queue.offer(pending)) {
+            throw new BookingOverloadedException("Too many bookings in progress, try again later");
+        }
+
+        try {
+            return pending.outcome().get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (TimeoutException e) {
+            // the writer skips stays whose caller gave up before their batch started. Once taken, a stay may be
+            // committed, and a client told to try again would book it twice
+            if (pending.take()) {
+                throw new BookingOverloadedException("Booking not processed within " + timeout + ", try again later");
+            }
+            return outcomeOf(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (pending.take()) {
+                throw new BookingOverloadedException("Interrupted while waiting for the booking to be processed");
+            }
+            return outcomeOf(pending);
+        }
+    }
+
+    private static Reservation outcomeOf(PendingReservation pending) {
+        try {
+            return pending.outcome().join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        return cause instanceof RuntimeException runtimeException ? runtimeException : new IllegalStateException(cause);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        running = true;
+
+        writer = new Thread(this::write, "reservation-sequencer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+
+        try {
+            writer.join(timeout.toMillis() + POLL_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void write() {
+        List<PendingReservation> batch = new ArrayList<>(maxBatchSize);
+
+        // stays queued before stopping are still booked
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingReservation first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, maxBatchSize - 1);
+
+                    // one transaction per campsite, so a failure at one campsite doesn't roll back the others
+                    batch.stream()
+                            .collect(Collectors.groupingBy(PendingReservation::campsiteId, LinkedHashMap::new, Collectors.toList()))
+                            .forEach(this::book);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+
+        queue.forEach(pending -> pending.outcome().completeExceptionally(new BookingOverloadedException("Bookings are not being accepted anymore")));
+    }
+
+    private void book(long campsiteId, List<PendingReservation> batch) {
+        List<PendingReservation> pending = batch.stream()
+                .filter(PendingReservation::take)
+                .toList();
+
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        batchSizes.record(pending.size());
+
+        try {
+            complete(pending, reservationService.reserveAll(campsiteId, pending.stream().map(PendingReservation::command).toList()));
+        } catch (RuntimeException e) {
+            // the whole batch was rolled back. The writer must go on, or every following booking would time out
+            log.warn("Batch of {} reservations at campsite {} failed", pending.size(), campsiteId, e);
+
+            if (pending.size() == 1) {
+                pending.get(0).outcome().completeExceptionally(e);
+                return;
+            }
+
+            // one stay may have failed the others: each one is booked again on its own, and fails only its caller
+            for (PendingReservation reservation : pending) {
+                try {
+                    complete(List.of(reservation), reservationService.reserveAll(campsiteId, List.of(reservation.command())));
+                } catch (RuntimeException failure) {
+                    reservation.outcome().completeExceptionally(failure);
+                }
+            }
+        }
+    }
+
+    private static void complete(List<PendingReservation> pending, List<ReservationOutcome> outcomes) {
+        for (int i = 0; i < outcomes.size(); i++) {
+            ReservationOutcome outcome = outcomes.get(i);
+
+            if (outcome.isCreated()) {
+                pending.get(i).outcome().complete(outcome.reservation());
+            } else {
+                pending.get(i).outcome().completeExceptionally(outcome.violation());
+            }
+        }
+    }
+
+    private record PendingReservation(long campsiteId, ReservationCommand command, CompletableFuture<Reservation> outcome, AtomicBoolean taken) {
+        PendingReservation(long campsiteId, ReservationCommand command) {
+            this(campsiteId, command, new CompletableFuture<>(), new AtomicBoolean());
+        }
+
+        /**
+         * Taken either by the writer, to book it, or by its caller, giving up on it. Only one of them gets it.
+         */
+        boolean take() {
+            return taken.compareAndSet(false, true);
+        }
+    }
+}
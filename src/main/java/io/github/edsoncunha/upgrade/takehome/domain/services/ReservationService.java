@@ -1,13 +1,21 @@
 package io.github.edsoncunha.upgrade.takehome.domain.services;
 
 
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Campsite;
 import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.InvalidReservationException;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.MaxActiveReservationsExceededException;
 import io.github.edsoncunha.upgrade.takehome.domain.exceptions.NoPlacesAvailableException;
 
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.ReservationConstraintException;
 import io.github.edsoncunha.upgrade.takehome.domain.exceptions.ReservationNotFoundException;
 import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationRepository;
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.AvailabilityCache;
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.AvailabilityCalendar;
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.OccupancyIndex;
 import io.github.edsoncunha.upgrade.takehome.domain.services.validation.ReservationRule;
 import io.github.edsoncunha.upgrade.takehome.etc.Clock;
+import io.micrometer.core.annotation.Timed;
 import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -19,12 +27,12 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Duration;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-
-import static  io.github.edsoncunha.upgrade.takehome.support.ListOperations.last;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Builder
 @Service
@@ -32,125 +40,316 @@ import static  io.github.edsoncunha.upgrade.takehome.support.ListOperations.last
 public class ReservationService {
     public static final String AVAILABILITY_SEARCH_CACHE_NAME = "availability";
     public static final int LOCK_ID = 13;
+    public static final String OPERATIONS_METRIC = "campsite.reservations";
+    public static final int MAX_PAGE_SIZE = 100;
+    // every night of a batch is locked until it commits, so the batches sent to the API are bounded
+    public static final int MAX_BATCH_SIZE = 100;
 
-    private int campsiteCapacity;
+    private final CampsiteService campsites;
+    private final ConcurrencyControl concurrencyControl;
     private final Clock clock;
     private final ReservationRepository repository;
     private final List<ReservationRule> reservationRules;
     private final LockManager lockManager;
+    private final OccupancyLedger occupancyLedger;
 
     private final CacheManager cacheManager;
-
-
-    public ReservationService(@Value("${campsite.capacity}") int capacity, Clock clock, ReservationRepository repository, List<ReservationRule> reservationRules, LockManager lockManager, CacheManager cacheManager) {
-        this.campsiteCapacity = capacity;
+    private final AvailabilityInvalidationBus invalidationBus;
+    private final AvailabilitySnapshots availabilitySnapshots;
+    private final ActiveReservationCounter activeReservations;
+    private final AvailabilityVersion availabilityVersion;
+
+    public ReservationService(CampsiteService campsites, @Value("${campsite.concurrencyControl:ROW_LOCK}") ConcurrencyControl concurrencyControl, Clock clock, ReservationRepository repository, List<ReservationRule> reservationRules, LockManager lockManager, OccupancyLedger occupancyLedger, CacheManager cacheManager, AvailabilityInvalidationBus invalidationBus, AvailabilitySnapshots availabilitySnapshots, ActiveReservationCounter activeReservations, AvailabilityVersion availabilityVersion) {
+        this.campsites = campsites;
+        this.concurrencyControl = concurrencyControl;
         this.clock = clock;
         this.repository = repository;
         this.reservationRules = reservationRules;
         this.lockManager = lockManager;
+        this.occupancyLedger = occupancyLedger;
         this.cacheManager = cacheManager;
+        this.invalidationBus = invalidationBus;
+        this.availabilitySnapshots = availabilitySnapshots;
+        this.activeReservations = activeReservations;
+        this.availabilityVersion = availabilityVersion;
     }
 
     @Transactional
-    public Reservation reserve(String userEmail, LocalDate arrivalDate, int lengthOfStay) {
+    @Timed(value = OPERATIONS_METRIC, extraTags = {"operation", "reserve"}, histogram = true)
+    public Reservation reserve(long campsiteId, String userEmail, LocalDate arrivalDate, int lengthOfStay) {
+        int capacity = campsites.capacityOf(campsiteId);
+
+        validate(new ReservationCommand(userEmail, arrivalDate, lengthOfStay));
         reservationRules.forEach(rule -> rule.validate(userEmail, arrivalDate, lengthOfStay));
 
         Duration timeout = Duration.ofSeconds(3);
 
-        if (isReservable(arrivalDate, lengthOfStay)) {
-            return lockManager.lock(LOCK_ID, timeout, () -> {
+        if (isReservable(campsiteId, capacity, arrivalDate, lengthOfStay, null)) {
+            LocalDate checkoutDate = arrivalDate.plusDays(lengthOfStay);
 
-                clearAvailabilityCache();
+            return withConcurrencyControl(nightLocks(campsiteId, arrivalDate, checkoutDate), timeout, () -> {
+                evictAvailability(campsiteId, arrivalDate, checkoutDate);
 
-                // double-check locking
-                if (isReservable(arrivalDate, lengthOfStay)) {
-                    return doSaveReservation(userEmail, arrivalDate, lengthOfStay);
-                }
+                // double-check: the ledger refuses the claim if any night got full in the meantime
+                claimNights(campsiteId, capacity, arrivalDate, checkoutDate);
+                activeReservations.add(userEmail, checkoutDate);
 
-                throw new NoPlacesAvailableException();
+                return doSaveReservation(campsiteId, userEmail, arrivalDate, lengthOfStay);
             });
         }
 
         throw new NoPlacesAvailableException();
     }
 
-    public Reservation updateReservation(long id, LocalDate newArrivalDate, int lengthOfStay) {
-        Reservation reservationToBeUpdated = repository.findById(id)
-                .orElseThrow(ReservationNotFoundException::new);
+    /**
+     * Books many stays at a campsite under a single lock and transaction. Every command is validated by the reservation rules,
+     * then commands are booked in order against the occupancy of the union of their nights, loaded once. A command that
+     * can't be booked as sent, e.g. without an email, is rejected on its own instead of failing the others.
+     *
+     * @return one outcome per command, in the same order: the created reservation or the constraint it violated
+     */
+    @Transactional
+    @Timed(value = OPERATIONS_METRIC, extraTags = {"operation", "batch"}, histogram = true)
+    public List<ReservationOutcome> reserveAll(long campsiteId, List<ReservationCommand> commands) {
+        int capacity = campsites.capacityOf(campsiteId);
+
+        ReservationOutcome[] outcomes = new ReservationOutcome[commands.size()];
+        List<Integer> validCommands = new ArrayList<>();
+
+        for (int i = 0; i < commands.size(); i++) {
+            ReservationCommand command = commands.get(i);
+
+            try {
+                validate(command);
+                reservationRules.forEach(rule -> rule.validate(command.email(), command.arrivalDate(), command.lengthOfStay()));
 
-        reservationRules.forEach(rule -> rule.validate(reservationToBeUpdated.getEmail(), newArrivalDate, lengthOfStay));
+                if (!isBookable(command.arrivalDate(), command.lengthOfStay())) {
+                    throw new NoPlacesAvailableException();
+                }
+
+                validCommands.add(i);
+            } catch (ReservationConstraintException e) {
+                outcomes[i] = ReservationOutcome.rejected(e);
+            }
+        }
+
+        if (validCommands.isEmpty()) {
+            return List.of(outcomes);
+        }
+
+        LocalDate firstNight = validCommands.stream().map(i -> commands.get(i).arrivalDate()).min(LocalDate::compareTo).orElseThrow();
+        LocalDate lastCheckout = validCommands.stream().map(i -> commands.get(i).checkoutDate()).max(LocalDate::compareTo).orElseThrow();
 
         Duration timeout = Duration.ofSeconds(3);
 
-        if (isReservable(newArrivalDate, lengthOfStay, reservationToBeUpdated)) {
-            return lockManager.lock(LOCK_ID, timeout, () -> {
+        return withConcurrencyControl(nightLocks(campsiteId, firstNight, lastCheckout), timeout, () -> {
+            // the ledger rows stay locked until commit, so this view can't go stale while we book against it
+            OccupancyIndex occupancy = occupancyLedger.lockNights(campsiteId, firstNight, lastCheckout);
+            OccupancyIndex.Builder bookedNights = OccupancyIndex.builder(firstNight, lastCheckout.minusDays(1));
+
+            List<Reservation> reservations = new ArrayList<>();
+            List<Integer> reservationCommands = new ArrayList<>();
+
+            for (int i : validCommands) {
+                ReservationCommand command = commands.get(i);
+
+                if (!occupancy.isAvailable(command.arrivalDate(), command.lengthOfStay(), capacity)) {
+                    outcomes[i] = ReservationOutcome.rejected(new NoPlacesAvailableException());
+                    continue;
+                }
+
+                try {
+                    // counted as it's booked, so a guest can't go past the quota within the batch either
+                    activeReservations.add(command.email(), command.checkoutDate());
+                } catch (MaxActiveReservationsExceededException e) {
+                    outcomes[i] = ReservationOutcome.rejected(e);
+                    continue;
+                }
+
+                occupancy.occupy(command.arrivalDate(), command.lengthOfStay());
+                bookedNights.add(command.arrivalDate().toEpochDay(), command.checkoutDate().toEpochDay());
+
+                reservations.add(newReservation(campsiteId, command.email(), command.arrivalDate(), command.lengthOfStay()));
+                reservationCommands.add(i);
+            }
+
+            repository.insertAll(reservations);
+            occupancyLedger.book(campsiteId, bookedNights.build());
+
+            for (int j = 0; j < reservations.size(); j++) {
+                outcomes[reservationCommands.get(j)] = ReservationOutcome.created(reservations.get(j));
+            }
+
+            evictAvailability(campsiteId, firstNight, lastCheckout);
 
-                clearAvailabilityCache();
+            return List.of(outcomes);
+        });
+    }
+
+    @Transactional
+    @Timed(value = OPERATIONS_METRIC, extraTags = {"operation", "update"}, histogram = true)
+    public Reservation updateReservation(long campsiteId, long id, LocalDate newArrivalDate, int lengthOfStay) {
+        Reservation reservationToBeUpdated = findReservationForUpdate(campsiteId, id);
+        int capacity = campsites.capacityOf(campsiteId);
+
+        reservationRules.forEach(rule -> rule.validateUpdate(reservationToBeUpdated, newArrivalDate, lengthOfStay));
+
+        Duration timeout = Duration.ofSeconds(3);
 
-                // double-check locking
-                if (isReservable(newArrivalDate, lengthOfStay, reservationToBeUpdated)) {
-                    return doUpdateReservation(reservationToBeUpdated, newArrivalDate, lengthOfStay);
+        if (isReservable(campsiteId, capacity, newArrivalDate, lengthOfStay, reservationToBeUpdated)) {
+            LocalDate previousCheckinDate = reservationToBeUpdated.getCheckin().toLocalDate();
+            LocalDate previousCheckoutDate = reservationToBeUpdated.getCheckout().toLocalDate();
+            LocalDate newCheckoutDate = newArrivalDate.plusDays(lengthOfStay);
+
+            Set<Long> locks = nightLocks(campsiteId, previousCheckinDate, previousCheckoutDate);
+            locks.addAll(nightLocks(campsiteId, newArrivalDate, newCheckoutDate));
+
+            return withConcurrencyControl(locks, timeout, () -> {
+                evictAvailability(campsiteId, previousCheckinDate, previousCheckoutDate);
+                evictAvailability(campsiteId, newArrivalDate, newCheckoutDate);
+
+                // a canceled reservation holds no nights in the ledger
+                if (!reservationToBeUpdated.getCanceled()) {
+                    // the nights of both stays are locked in day order first: releasing the old ones and then claiming
+                    // the new ones would lock them in opposite orders when two updates swap their dates
+                    occupancyLedger.lockNights(campsiteId, min(previousCheckinDate, newArrivalDate), max(previousCheckoutDate, newCheckoutDate));
+                    occupancyLedger.release(campsiteId, previousCheckinDate, previousCheckoutDate);
+                    claimNights(campsiteId, capacity, newArrivalDate, newCheckoutDate);
+                    activeReservations.move(reservationToBeUpdated.getEmail(), previousCheckoutDate, newCheckoutDate);
                 }
 
-                throw new NoPlacesAvailableException();
+                return doUpdateReservation(reservationToBeUpdated, newArrivalDate, lengthOfStay);
             });
         }
 
         throw new NoPlacesAvailableException();
     }
 
-    public void cancelReservation(long reservationId) {
-        Reservation reservation = repository.findById(reservationId)
-                .orElseThrow(ReservationNotFoundException::new);
+    @Transactional
+    @Timed(value = OPERATIONS_METRIC, extraTags = {"operation", "cancel"}, histogram = true)
+    public void cancelReservation(long campsiteId, long reservationId) {
+        Reservation reservation = findReservationForUpdate(campsiteId, reservationId);
+
+        if (reservation.getCanceled()) {
+            // its nights were already released
+            return;
+        }
 
         reservation.setCanceled(true);
 
         repository.save(reservation);
-    }
 
-    @Cacheable(value = AVAILABILITY_SEARCH_CACHE_NAME)
-    public List<LocalDate> getAvailableDates(LocalDate firstDayOfAccommodation, LocalDate lastDayOfAccommodation) {
-        return getAvailableDates(firstDayOfAccommodation, lastDayOfAccommodation, null);
+        LocalDate checkinDate = reservation.getCheckin().toLocalDate();
+        LocalDate checkoutDate = reservation.getCheckout().toLocalDate();
+
+        occupancyLedger.release(campsiteId, checkinDate, checkoutDate);
+        activeReservations.remove(reservation.getEmail(), checkoutDate);
+
+        evictAvailability(campsiteId, checkinDate, checkoutDate);
     }
 
-    public List<LocalDate> getAvailableDates(LocalDate firstDayOfAccommodation, LocalDate lastDayOfAccommodation, Reservation reservationToBeUpdated) {
-        log.info("Searching availability between  {} and {}", firstDayOfAccommodation, lastDayOfAccommodation);
+    // searches inside the bookable horizon are answered by the in-memory snapshot, and skip the cache altogether.
+    // Searches read from a replica aren't cached either: the replica may not have replayed a booking yet when its
+    // eviction happens, and a stale entry would outlive it
+    @Cacheable(value = AVAILABILITY_SEARCH_CACHE_NAME, keyGenerator = AvailabilityCache.KEY_GENERATOR,
+            condition = "!@availabilitySnapshots.covers(#p1, #p2) && !@environment.containsProperty('campsite.readReplica.url')")
+    @Timed(value = OPERATIONS_METRIC, extraTags = {"operation", "availability"}, histogram = true)
+    public AvailabilityCalendar getAvailability(long campsiteId, LocalDate firstDayOfAccommodation, LocalDate lastDayOfAccommodation) {
+        AvailabilityCalendar fromSnapshot = getAvailabilityFromSnapshot(campsiteId, firstDayOfAccommodation, lastDayOfAccommodation);
 
-        firstDayOfAccommodation = ensureFutureDate(firstDayOfAccommodation);
+        return fromSnapshot != null ? fromSnapshot : getAvailability(campsiteId, firstDayOfAccommodation, lastDayOfAccommodation, null);
+    }
 
-        List<Reservation> currentReservations = repository.getReservationsInPeriod(firstDayOfAccommodation, lastDayOfAccommodation);
+    /**
+     * The availability as answered by the in-memory snapshot, which is built from the primary.
+     *
+     * @return null when the search goes beyond the bookable horizon or the snapshot can't be built
+     */
+    public AvailabilityCalendar getAvailabilityFromSnapshot(long campsiteId, LocalDate firstDayOfAccommodation, LocalDate lastDayOfAccommodation) {
+        return availabilitySnapshots.availability(campsiteId, firstDayOfAccommodation, lastDayOfAccommodation, campsites.capacityOf(campsiteId));
+    }
 
-        if (reservationToBeUpdated != null) {
-            currentReservations = currentReservations.stream().filter( reservation -> reservation != reservationToBeUpdated).toList();
+    public AvailabilityCalendar getAvailability(long campsiteId, LocalDate firstDayOfAccommodation, LocalDate lastDayOfAccommodation, Reservation reservationToBeUpdated) {
+        // called on every search that isn't answered from memory
+        if (log.isDebugEnabled()) {
+            log.debug("Searching availability of campsite {} between {} and {}", campsiteId, firstDayOfAccommodation, lastDayOfAccommodation);
         }
 
-        // the island capacity is small, so it's fine to count occupation per day on the application side
-        long daysSpan = ChronoUnit.DAYS.between(firstDayOfAccommodation, lastDayOfAccommodation);
+        firstDayOfAccommodation = ensureFutureDate(firstDayOfAccommodation);
 
-        ArrayList<LocalDate> availableDates = new ArrayList<>();
+        OccupancyIndex.Builder occupancy = OccupancyIndex.builder(firstDayOfAccommodation, lastDayOfAccommodation);
 
-        for (int i = 0; i <= daysSpan; i++) {
-            LocalDate candidateDate = firstDayOfAccommodation.plusDays(i);
+        // only the days of each stay are read, straight into the index. Outside of a booking, a replica that is
+        // slightly behind is good enough
+        repository.searchStaysInPeriod(campsiteId, firstDayOfAccommodation, lastDayOfAccommodation,
+                reservationToBeUpdated == null ? 0 : reservationToBeUpdated.getId(), occupancy::add);
 
-            List<Reservation> activeReservationsAtCandidateDate = currentReservations.stream().filter(reservation -> reservation.isActiveAt(candidateDate)).toList();
-            long occupationAtCandidateDate = activeReservationsAtCandidateDate.size();
+        return occupancy.build().availability(campsites.capacityOf(campsiteId));
+    }
 
-            if (occupationAtCandidateDate < campsiteCapacity) {
-                availableDates.add(candidateDate);
+    /**
+     * The reservations of a guest at the campsite, canceled ones included, a page at a time. Pages are found by
+     * keyset: each one starts after the last id of the previous, so a page costs the same however long the history is.
+     *
+     * @param afterId last id of the previous page, or 0 for the first page
+     * @param pageSize bounded by {@link #MAX_PAGE_SIZE}
+     */
+    @Transactional(readOnly = true)
+    @Timed(value = OPERATIONS_METRIC, extraTags = {"operation", "lookup"}, histogram = true)
+    public ReservationPage findReservationsByEmail(long campsiteId, String email, long afterId, int pageSize) {
+        pageSize = Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE));
+
+        // one more row than the page tells whether there is a next one
+        try (Stream<Reservation> reservations = repository.streamByEmail(campsiteId, email, afterId, pageSize + 1)) {
+            List<Reservation> rows = reservations.toList();
+
+            if (rows.size() <= pageSize) {
+                return new ReservationPage(rows, null);
             }
+
+            List<Reservation> page = rows.subList(0, pageSize);
+
+            return new ReservationPage(page, page.get(pageSize - 1).getId());
         }
+    }
+
+    // reservations of other campsites aren't found through this one
+    // checked before the rules, which expect both, and before the insert, which would fail the whole transaction
+    private static void validate(ReservationCommand command) {
+        if (command.email() == null || command.arrivalDate() == null) {
+            throw new InvalidReservationException("email and arrivalDate are required");
+        }
+        if (command.email().length() > ReservationCommand.MAX_EMAIL_LENGTH) {
+            throw new InvalidReservationException("email can have at most " + ReservationCommand.MAX_EMAIL_LENGTH + " characters");
+        }
+    }
+
+    // locked until commit, so concurrent changes to the reservation are applied one after the other
+    private Reservation findReservationForUpdate(long campsiteId, long reservationId) {
+        return repository.findByIdForUpdate(reservationId)
+                .filter(reservation -> reservation.getCampsiteId() == campsiteId)
+                .orElseThrow(ReservationNotFoundException::new);
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
 
-        return availableDates;
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
     }
 
-    private Reservation doSaveReservation(String userEmail, LocalDate arrivalDate, int lengthOfStay) {
-        return repository.save(
-                Reservation.builder()
-                        .email(userEmail)
-                        .checkin(arrivalDate.atStartOfDay())
-                        .checkout(arrivalDate.plusDays(lengthOfStay).atStartOfDay())
-                        .build()
-        );
+    private Reservation doSaveReservation(long campsiteId, String userEmail, LocalDate arrivalDate, int lengthOfStay) {
+        return repository.save(newReservation(campsiteId, userEmail, arrivalDate, lengthOfStay));
+    }
+
+    private static Reservation newReservation(long campsiteId, String userEmail, LocalDate arrivalDate, int lengthOfStay) {
+        return Reservation.builder()
+                .campsiteId(campsiteId)
+                .email(userEmail)
+                .checkin(arrivalDate.atStartOfDay())
+                .checkout(arrivalDate.plusDays(lengthOfStay).atStartOfDay())
+                .build();
     }
 
     private Reservation doUpdateReservation(Reservation reservationToBeUpdated, LocalDate newArrivalDate, int lengthOfStay) {
@@ -160,30 +359,79 @@ public class ReservationService {
         return repository.save(reservationToBeUpdated);
     }
 
-    private void clearAvailabilityCache() {
-        // Clears cache synchronously to avoid eventual consistency during double-checking inside a critical section
-        // It evicts all keys for the sake of simplicity.
-        // In a more realistic scenario, it would be required to evict availability information only for {start, end} cache keys
-        // that overlap the reservation we have just created
+    private <T> T withConcurrencyControl(Set<Long> locks, Duration timeout, Supplier<T> criticalSection) {
+        if (concurrencyControl == ConcurrencyControl.ADVISORY_LOCK) {
+            return lockManager.lock(locks, timeout, criticalSection);
+        }
+
+        // row locks taken by the ledger only serialize bookings that share a night
+        return criticalSection.get();
+    }
+
+    /**
+     * One advisory lock per campsite and night in [checkinDate, checkoutDate), so bookings on different nights or at
+     * different campsites don't wait for each other. Keys are namespaced by {@link #LOCK_ID} in their upper 8 bits,
+     * followed by 32 bits of campsite id and 24 bits of epoch day (enough until the year 47,000).
+     */
+    private static Set<Long> nightLocks(long campsiteId, LocalDate checkinDate, LocalDate checkoutDate) {
+        Set<Long> locks = new TreeSet<>();
+
+        for (long night = checkinDate.toEpochDay(); night < checkoutDate.toEpochDay(); night++) {
+            locks.add(((long) LOCK_ID << 56) | (campsiteId << 24) | night);
+        }
+
+        return locks;
+    }
+
+    private void claimNights(long campsiteId, int capacity, LocalDate checkinDate, LocalDate checkoutDate) {
+        if (!occupancyLedger.claim(campsiteId, checkinDate, checkoutDate, capacity)) {
+            // the exception rolls back whatever was claimed by the transaction
+            throw new NoPlacesAvailableException();
+        }
+    }
+
+    private void evictAvailability(long campsiteId, LocalDate checkinDate, LocalDate checkoutDate) {
+        // Evicts synchronously to avoid eventual consistency during double-checking inside a critical section.
+        // Only searches of the campsite overlapping the nights [checkin, checkout) are affected, the remaining entries
+        // stay valid. Every node, this one included, evicts them again once the change is committed.
+        invalidationBus.publish(campsiteId, checkinDate, checkoutDate.minusDays(1));
+        availabilitySnapshots.refreshAfterCommit(campsiteId);
+        availabilityVersion.incrementAfterCommit();
+
         Cache availabilityCache = cacheManager.getCache(AVAILABILITY_SEARCH_CACHE_NAME);
-        if (availabilityCache != null) {
+        if (availabilityCache instanceof AvailabilityCache rangeAwareCache) {
+            rangeAwareCache.evictOverlapping(campsiteId, checkinDate, checkoutDate.minusDays(1));
+        } else if (availabilityCache != null) {
             availabilityCache.invalidate();
         }
     }
 
-    private Boolean isReservable(LocalDate arrivalDate, int lengthOfStay) {
-        return isReservable(arrivalDate, lengthOfStay, null);
+    // package-private so the availability benchmarks can call it
+    Boolean isReservable(long campsiteId, LocalDate arrivalDate, int lengthOfStay) {
+        return isReservable(campsiteId, campsites.capacityOf(campsiteId), arrivalDate, lengthOfStay, null);
     }
 
-    private Boolean isReservable(LocalDate arrivalDate, int lengthOfStay, Reservation reservationToBeUpdated) {
-        ArrayList<LocalDate> accommodationDates = new ArrayList<>();
-        for (int i = 0; i < lengthOfStay; i++) {
-            accommodationDates.add(arrivalDate.plusDays(i));
+    private Boolean isReservable(long campsiteId, int capacity, LocalDate arrivalDate, int lengthOfStay, Reservation reservationToBeUpdated) {
+        if (!isBookable(arrivalDate, lengthOfStay)) {
+            return false;
         }
 
-        List<LocalDate> availableDates = getAvailableDates(arrivalDate, last(accommodationDates), reservationToBeUpdated);
+        LocalDate lastNight = arrivalDate.plusDays(lengthOfStay - 1);
+
+        return occupancyIndex(campsiteId, arrivalDate, lastNight, reservationToBeUpdated)
+                .isAvailable(arrivalDate, lengthOfStay, capacity);
+    }
+
+    private boolean isBookable(LocalDate arrivalDate, int lengthOfStay) {
+        // nights before the campsite current date can't be booked anymore
+        return lengthOfStay >= 1 && !ensureFutureDate(arrivalDate).isAfter(arrivalDate);
+    }
+
+    private OccupancyIndex occupancyIndex(long campsiteId, LocalDate firstDay, LocalDate lastDay, Reservation reservationToBeUpdated) {
+        List<Reservation> currentReservations = repository.getReservationsInPeriod(campsiteId, firstDay, lastDay);
 
-        return new HashSet<>(availableDates).containsAll(accommodationDates);
+        // campsite capacities are small, so it's fine to count occupation per day on the application side
+        return OccupancyIndex.of(firstDay, lastDay, currentReservations, reservationToBeUpdated);
     }
 
     private LocalDate ensureFutureDate(LocalDate firstDayOfAccommodation) {
@@ -195,6 +443,6 @@ public class ReservationService {
 
     // just a convenience for integration tests :)
     public void setCapacity(int newCapacity) {
-        this.campsiteCapacity = newCapacity;
+        campsites.updateCapacity(Campsite.DEFAULT_ID, newCapacity);
     }
 }
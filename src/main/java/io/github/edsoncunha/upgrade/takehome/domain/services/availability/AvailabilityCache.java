@@ -0,0 +1,190 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services.availability;
+
+import org.springframework.cache.Cache;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Availability search cache that knows which date range each entry was computed for, so a reservation only evicts
+ * the searches overlapping its nights instead of the whole cache.
+ * <p>
+ * Keys are kept sorted by campsite, then by their first day. Since no cached search spans more than
+ * {@code longestSpan} days, the searches of a campsite overlapping [firstNight, lastNight] all start within
+ * [firstNight - longestSpan, lastNight], and a booking never touches the entries of other campsites.
+ * <p>
+ * {@code longestSpan} never shrinks, so searches spanning more than {@link #MAX_CACHED_SPAN} days aren't stored at
+ * all: a single multi-year search would otherwise make every later eviction scan all the keys of its campsite.
+ */
+public class AvailabilityCache implements Cache {
+    public static final String KEY_GENERATOR = "availabilitySearchKeyGenerator";
+    public static final long MAX_CACHED_SPAN = 366;
+
+    private final Cache delegate;
+    private final NavigableSet<AvailabilitySearchKey> keys = new ConcurrentSkipListSet<>(
+            Comparator.comparingLong(AvailabilitySearchKey::campsiteId)
+                    .thenComparing(AvailabilitySearchKey::firstDay)
+                    .thenComparing(AvailabilitySearchKey::lastDay));
+    private final AtomicLong longestSpan = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public AvailabilityCache(Cache delegate) {
+        this.delegate = delegate;
+    }
+
+    public void evictOverlapping(long campsiteId, LocalDate firstNight, LocalDate lastNight) {
+        AvailabilitySearchKey from = new AvailabilitySearchKey(campsiteId, firstNight.minusDays(longestSpan.get()), LocalDate.MIN);
+        AvailabilitySearchKey to = new AvailabilitySearchKey(campsiteId, lastNight, LocalDate.MAX);
+
+        for (AvailabilitySearchKey key : keys.subSet(from, true, to, true)) {
+            if (key.overlaps(firstNight, lastNight)) {
+                evict(key);
+            }
+        }
+    }
+
+    /**
+     * Drops a key the underlying store has already removed by itself, e.g. when it expired or the store was full.
+     * Meant to be called while the store removes the entry, so it can't race with a new value stored for the key.
+     */
+    public void forget(Object key) {
+        keys.remove(key);
+        evictions.increment();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long putCount() {
+        return puts.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public long size() {
+        return keys.size();
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return countLookup(delegate.get(key));
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return countLookup(delegate.get(key, type));
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        if (!cacheable(key)) {
+            misses.increment();
+            return load(key, valueLoader);
+        }
+
+        index(key);
+        T value = delegate.get(key, valueLoader);
+        reindex(key);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (!cacheable(key)) {
+            return;
+        }
+
+        index(key);
+        delegate.put(key, value);
+        reindex(key);
+        puts.increment();
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        if (!cacheable(key)) {
+            return null;
+        }
+
+        index(key);
+        ValueWrapper existing = delegate.putIfAbsent(key, value);
+        reindex(key);
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        // the key leaves the index first: a value stored in between indexes it again, and is then either evicted
+        // below or still reachable by the next eviction. The other way round, it would stay cached unindexed
+        keys.remove(key);
+        delegate.evict(key);
+        evictions.increment();
+    }
+
+    @Override
+    public void clear() {
+        keys.clear();
+        delegate.clear();
+    }
+
+    private <T> T countLookup(T value) {
+        (value == null ? misses : hits).increment();
+        return value;
+    }
+
+    private static boolean cacheable(Object key) {
+        if (!(key instanceof AvailabilitySearchKey searchKey)) {
+            throw new IllegalArgumentException("Availability cache only supports keys of type " + AvailabilitySearchKey.class.getSimpleName());
+        }
+
+        return searchKey.span() <= MAX_CACHED_SPAN;
+    }
+
+    private static <T> T load(Object key, Callable<T> valueLoader) {
+        try {
+            return valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    // the key is indexed before the value is stored, so an entry is never cached without being reachable by an eviction
+    private void index(Object key) {
+        AvailabilitySearchKey searchKey = (AvailabilitySearchKey) key;
+
+        keys.add(searchKey);
+        longestSpan.accumulateAndGet(searchKey.span(), Math::max);
+    }
+
+    // the store may have dropped an older entry for the same key while the new one was being stored, and forgotten
+    // the key on the way
+    private void reindex(Object key) {
+        keys.add((AvailabilitySearchKey) key);
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services.availability;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Which days of a window [first, last] still have places available, one bit per day.
+ * <p>
+ * It's what gets cached for an availability search: a one-year search takes under 50 bytes of bits instead of a list of
+ * a few hundred {@link LocalDate}, and the API can encode it as dates, intervals or a bitmap without copying it.
+ */
+public class AvailabilityCalendar {
+    private final long firstEpochDay;
+    private final int days;
+    private final BitSet available;
+
+    AvailabilityCalendar(long firstEpochDay, int days, BitSet available) {
+        this.firstEpochDay = firstEpochDay;
+        this.days = days;
+        this.available = available;
+    }
+
+    public LocalDate firstDay() {
+        return LocalDate.ofEpochDay(firstEpochDay);
+    }
+
+    public int days() {
+        return days;
+    }
+
+    public boolean isAvailable(LocalDate date) {
+        long index = date.toEpochDay() - firstEpochDay;
+        return index >= 0 && index < days && available.get((int) index);
+    }
+
+    public int availableDays() {
+        return available.cardinality();
+    }
+
+    public List<LocalDate> availableDates() {
+        return streamAvailableDates().toList();
+    }
+
+    public Stream<LocalDate> streamAvailableDates() {
+        return available.stream().mapToObj(day -> LocalDate.ofEpochDay(firstEpochDay + day));
+    }
+
+    /**
+     * Runs of consecutive available days, as inclusive intervals.
+     */
+    public List<Range> availableRanges() {
+        ArrayList<Range> ranges = new ArrayList<>();
+
+        for (int from = available.nextSetBit(0); from >= 0; from = available.nextSetBit(from)) {
+            // nextClearBit returns days when the run goes up to the end of the window
+            int to = available.nextClearBit(from);
+            ranges.add(new Range(LocalDate.ofEpochDay(firstEpochDay + from), LocalDate.ofEpochDay(firstEpochDay + to - 1)));
+            from = to;
+        }
+
+        return ranges;
+    }
+
+    /**
+     * One bit per day of the window, least significant bit first: day {@code firstDay() + i} is bit {@code i % 8}
+     * of byte {@code i / 8}.
+     */
+    public byte[] toBitmap() {
+        // BitSet drops trailing zero bytes, the bitmap always covers the whole window
+        return Arrays.copyOf(available.toByteArray(), (days + 7) / 8);
+    }
+
+    public record Range(LocalDate from, LocalDate to) {
+    }
+}
@@ -0,0 +1,16 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services.availability;
+
+import java.time.LocalDate;
+
+/**
+ * Cache key of an availability search over the days [firstDay, lastDay] of a campsite.
+ */
+public record AvailabilitySearchKey(long campsiteId, LocalDate firstDay, LocalDate lastDay) {
+    public boolean overlaps(LocalDate firstNight, LocalDate lastNight) {
+        return !firstDay.isAfter(lastNight) && !lastDay.isBefore(firstNight);
+    }
+
+    public long span() {
+        return lastDay.toEpochDay() - firstDay.toEpochDay();
+    }
+}
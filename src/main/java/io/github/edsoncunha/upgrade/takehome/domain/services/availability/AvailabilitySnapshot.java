@@ -0,0 +1,37 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services.availability;
+
+import java.time.LocalDate;
+
+/**
+ * Occupancy of every day of a window, as of some committed state. It's never modified after being built, so it can
+ * be read from any thread without locking.
+ */
+public class AvailabilitySnapshot {
+    private final long generation;
+    private final OccupancyIndex occupancy;
+
+    /**
+     * @param generation snapshots built later have a higher generation
+     * @param occupancy  must not be modified afterwards
+     */
+    public AvailabilitySnapshot(long generation, OccupancyIndex occupancy) {
+        this.generation = generation;
+        this.occupancy = occupancy;
+    }
+
+    public long generation() {
+        return generation;
+    }
+
+    public LocalDate firstDay() {
+        return occupancy.firstDay();
+    }
+
+    public LocalDate lastDay() {
+        return occupancy.lastDay();
+    }
+
+    public AvailabilityCalendar availability(LocalDate firstDay, LocalDate lastDay, int capacity) {
+        return occupancy.availability(firstDay, lastDay, capacity);
+    }
+}
@@ -0,0 +1,172 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services.availability;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+
+import java.time.LocalDate;
+import java.util.BitSet;
+
+/**
+ * Number of occupied places per night in a window of days [first, last].
+ * <p>
+ * It is filled in a single pass over the reservations using a difference array keyed by epoch day, and prefix-summed
+ * once, so every lookup afterwards is a plain array access.
+ */
+public class OccupancyIndex {
+    private final long firstEpochDay;
+    private final int[] occupancy;
+
+    private OccupancyIndex(long firstEpochDay, int[] occupancy) {
+        this.firstEpochDay = firstEpochDay;
+        this.occupancy = occupancy;
+    }
+
+    public static Builder builder(LocalDate firstDay, LocalDate lastDay) {
+        return new Builder(firstDay.toEpochDay(), lastDay.toEpochDay());
+    }
+
+    /**
+     * Builds the index of the given reservations. {@code ignoredReservation} (if any) is not counted, which is what
+     * we want when checking whether a reservation can be moved to other dates.
+     */
+    public static OccupancyIndex of(LocalDate firstDay, LocalDate lastDay, Iterable<Reservation> reservations, Reservation ignoredReservation) {
+        Builder builder = builder(firstDay, lastDay);
+
+        for (Reservation reservation : reservations) {
+            if (ignoredReservation == null || reservation.getId() != ignoredReservation.getId()) {
+                builder.add(reservation);
+            }
+        }
+
+        return builder.build();
+    }
+
+    public LocalDate firstDay() {
+        return LocalDate.ofEpochDay(firstEpochDay);
+    }
+
+    public LocalDate lastDay() {
+        return LocalDate.ofEpochDay(firstEpochDay + occupancy.length - 1);
+    }
+
+    public int days() {
+        return occupancy.length;
+    }
+
+    public int occupancyAt(LocalDate date) {
+        return occupancy[indexOf(date.toEpochDay())];
+    }
+
+    public boolean isAvailable(LocalDate arrivalDate, int lengthOfStay, int capacity) {
+        int firstNight = indexOf(arrivalDate.toEpochDay());
+
+        for (int i = firstNight; i < firstNight + lengthOfStay; i++) {
+            if (occupancy[i] >= capacity) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Takes one place on every night of the stay. Used to book several stays in a row against the same view.
+     */
+    public void occupy(LocalDate arrivalDate, int lengthOfStay) {
+        int firstNight = indexOf(arrivalDate.toEpochDay());
+
+        for (int i = firstNight; i < firstNight + lengthOfStay; i++) {
+            occupancy[i]++;
+        }
+    }
+
+    public AvailabilityCalendar availability(int capacity) {
+        return availability(firstDay(), lastDay(), capacity);
+    }
+
+    /**
+     * Availability of the days [firstDay, lastDay], which must be inside the indexed window.
+     */
+    public AvailabilityCalendar availability(LocalDate firstDay, LocalDate lastDay, int capacity) {
+        int days = (int) Math.max(0, lastDay.toEpochDay() - firstDay.toEpochDay() + 1);
+        BitSet available = new BitSet(days);
+
+        if (days > 0) {
+            int from = indexOf(firstDay.toEpochDay());
+            indexOf(lastDay.toEpochDay());
+
+            for (int i = 0; i < days; i++) {
+                if (occupancy[from + i] < capacity) {
+                    available.set(i);
+                }
+            }
+        }
+
+        return new AvailabilityCalendar(firstDay.toEpochDay(), days, available);
+    }
+
+    private int indexOf(long epochDay) {
+        long index = epochDay - firstEpochDay;
+
+        if (index < 0 || index >= occupancy.length) {
+            throw new IndexOutOfBoundsException("Day " + LocalDate.ofEpochDay(epochDay) + " is out of the indexed window");
+        }
+
+        return (int) index;
+    }
+
+    public static class Builder {
+        private final long firstEpochDay;
+        private final long lastEpochDay;
+        // one extra slot, so a stay ending right after the window doesn't need special handling
+        private final int[] deltas;
+
+        private Builder(long firstEpochDay, long lastEpochDay) {
+            this.firstEpochDay = firstEpochDay;
+            this.lastEpochDay = lastEpochDay;
+            this.deltas = new int[(int) Math.max(0, lastEpochDay - firstEpochDay + 1) + 1];
+        }
+
+        public Builder add(Reservation reservation) {
+            return add(reservation.getCheckin().toLocalDate().toEpochDay(), reservation.getCheckout().toLocalDate().toEpochDay());
+        }
+
+        /**
+         * Counts a stay occupying the nights [checkinEpochDay, checkoutEpochDay). Nights outside the window are ignored.
+         */
+        public Builder add(long checkinEpochDay, long checkoutEpochDay) {
+            long from = Math.max(checkinEpochDay, firstEpochDay);
+            long to = Math.min(checkoutEpochDay, lastEpochDay + 1);
+
+            if (from < to) {
+                deltas[(int) (from - firstEpochDay)]++;
+                deltas[(int) (to - firstEpochDay)]--;
+            }
+
+            return this;
+        }
+
+        /**
+         * Counts {@code places} taken on a single night, as read from an already aggregated source.
+         */
+        public Builder addNight(long epochDay, int places) {
+            if (epochDay >= firstEpochDay && epochDay <= lastEpochDay) {
+                deltas[(int) (epochDay - firstEpochDay)] += places;
+                deltas[(int) (epochDay - firstEpochDay) + 1] -= places;
+            }
+
+            return this;
+        }
+
+        public OccupancyIndex build() {
+            int[] occupancy = new int[deltas.length - 1];
+
+            int running = 0;
+            for (int i = 0; i < occupancy.length; i++) {
+                running += deltas[i];
+                occupancy[i] = running;
+            }
+
+            return new OccupancyIndex(firstEpochDay, occupancy);
+        }
+    }
+}
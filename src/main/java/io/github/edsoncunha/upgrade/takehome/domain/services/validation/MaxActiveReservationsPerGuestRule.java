@@ -0,0 +1,45 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services.validation;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.InvalidRequestException;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.MaxActiveReservationsExceededException;
+import io.github.edsoncunha.upgrade.takehome.domain.services.ActiveReservationCounter;
+import io.github.edsoncunha.upgrade.takehome.etc.Clock;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Refuses bookings of guests already holding {@code campsite.guestQuota.maxActiveReservations} active reservations,
+ * so a single guest can't hoard the campsite. Counts are read from memory; the booking itself counts the reservation
+ * and checks the quota again, atomically, so concurrent bookings of the guest don't all get through.
+ */
+@Component
+@AllArgsConstructor
+public class MaxActiveReservationsPerGuestRule implements ReservationRule {
+    private ActiveReservationCounter activeReservations;
+    private Clock clock;
+
+    @Override
+    public void validate(String userEmail, LocalDate arrivalDate, int lengthOfStay) {
+        if (activeReservations.isEnabled() && userEmail == null) {
+            // a booking without a guest would get around the quota
+            throw new InvalidRequestException("email is required");
+        }
+
+        if (activeReservations.isEnabled() && activeReservations.activeReservations(userEmail) >= activeReservations.maxActiveReservations()) {
+            throw new MaxActiveReservationsExceededException(activeReservations.maxActiveReservations());
+        }
+    }
+
+    @Override
+    public void validateUpdate(Reservation reservation, LocalDate newArrivalDate, int lengthOfStay) {
+        // an active reservation is counted already, and a canceled one stays canceled
+        boolean checkedOut = !reservation.getCheckout().toLocalDate().isAfter(clock.now().toLocalDate());
+
+        if (!reservation.getCanceled() && checkedOut) {
+            validate(reservation.getEmail(), newArrivalDate, lengthOfStay);
+        }
+    }
+}
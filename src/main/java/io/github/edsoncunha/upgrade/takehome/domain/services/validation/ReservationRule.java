@@ -1,7 +1,14 @@
 package io.github.edsoncunha.upgrade.takehome.domain.services.validation;
 
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+
 import java.time.LocalDate;
 
 public interface ReservationRule {
     void validate(String userEmail, LocalDate arrivalDate, int lengthOfStay);
+
+    // rules depending on the guest's other reservations can tell the one being changed apart
+    default void validateUpdate(Reservation reservation, LocalDate newArrivalDate, int lengthOfStay) {
+        validate(reservation.getEmail(), newArrivalDate, lengthOfStay);
+    }
 }
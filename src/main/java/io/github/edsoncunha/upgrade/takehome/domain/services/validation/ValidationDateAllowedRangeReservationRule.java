@@ -12,7 +12,7 @@ import java.time.temporal.ChronoUnit;
 @AllArgsConstructor
 public class ValidationDateAllowedRangeReservationRule implements ReservationRule {
     private static final int MIN_ALLOWED_DAYS_IN_ADVANCE = 1;
-    private static final int MAX_ALLOWED_DAYS_IN_ADVANCE = 30;
+    public static final int MAX_ALLOWED_DAYS_IN_ADVANCE = 30;
 
     private Clock clock;
 
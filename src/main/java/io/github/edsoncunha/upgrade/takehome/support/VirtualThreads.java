@@ -0,0 +1,18 @@
+package io.github.edsoncunha.upgrade.takehome.support;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class VirtualThreads {
+    /**
+     * Virtual threads are a preview API on JDK 19 and 20, so it's looked up reflectively: the code compiles without
+     * {@code --enable-preview}, and only the JVMs running with virtual threads enabled need the flag.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads are not available. On JDK 19 and 20 the JVM must run with --enable-preview", e);
+        }
+    }
+}
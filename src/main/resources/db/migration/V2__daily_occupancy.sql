@@ -0,0 +1,14 @@
+create table daily_occupancy (
+    day                         date not null,
+    booked                      integer not null default 0,
+    CONSTRAINT daily_occupancy_pkey PRIMARY KEY(day),
+    CONSTRAINT daily_occupancy_booked_check CHECK (booked >= 0)
+);
+
+-- one row per night of every active reservation
+insert into daily_occupancy (day, booked)
+select checkin::date + night, count(*)
+  from reservation,
+       generate_series(0, checkout::date - checkin::date - 1) night
+ where canceled = false
+ group by checkin::date + night;
@@ -0,0 +1,7 @@
+-- nights of the stay, [checkin, checkout). Adding a stored column rewrites the table once
+alter table reservation
+    add column stay daterange not null
+    generated always as (daterange(checkin::date, checkout::date, '[)')) stored;
+
+-- availability searches only look at active reservations
+CREATE INDEX reservation_stay_idx ON public.reservation USING gist (stay) WHERE canceled = false;
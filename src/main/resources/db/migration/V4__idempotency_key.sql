@@ -0,0 +1,9 @@
+-- reservation requests already handled, by the Idempotency-Key header the client sent
+create table idempotency_key (
+    key                         varchar(255) not null,
+    fingerprint                 varchar(255) not null,
+    reservation_id              integer,
+    created_at                  timestamp not null default now(),
+    CONSTRAINT idempotency_key_pkey PRIMARY KEY(key),
+    CONSTRAINT idempotency_key_reservation_fkey FOREIGN KEY(reservation_id) REFERENCES reservation(id)
+);
@@ -0,0 +1,28 @@
+create table campsite (
+    id                          SERIAL,
+    name                        varchar(127) not null,
+    capacity                    integer not null,
+    CONSTRAINT campsite_pkey PRIMARY KEY(id),
+    CONSTRAINT campsite_capacity_check CHECK (capacity >= 0)
+);
+
+-- the campsite operated so far. Existing reservations and ledger rows belong to it. Its capacity is the one the
+-- deployment was configured with (campsite.capacity), see spring.flyway.placeholders
+insert into campsite (id, name, capacity) values (1, 'Campsite', ${campsiteCapacity});
+select setval('campsite_id_seq', 1);
+
+alter table reservation add column campsite_id integer not null default 1;
+alter table reservation alter column campsite_id drop default;
+alter table reservation add CONSTRAINT reservation_campsite_fkey FOREIGN KEY(campsite_id) REFERENCES campsite(id);
+
+-- availability is searched per campsite. btree_gist lets the campsite be the leading column of the GiST index
+create extension if not exists btree_gist;
+drop index reservation_stay_idx;
+CREATE INDEX reservation_campsite_stay_idx ON public.reservation USING gist (campsite_id, stay) WHERE canceled = false;
+
+-- each campsite has its own ledger rows, so bookings at different campsites never lock the same row
+alter table daily_occupancy add column campsite_id integer not null default 1;
+alter table daily_occupancy alter column campsite_id drop default;
+alter table daily_occupancy add CONSTRAINT daily_occupancy_campsite_fkey FOREIGN KEY(campsite_id) REFERENCES campsite(id);
+alter table daily_occupancy drop CONSTRAINT daily_occupancy_pkey;
+alter table daily_occupancy add CONSTRAINT daily_occupancy_pkey PRIMARY KEY(campsite_id, day);
@@ -0,0 +1,73 @@
+-- reservation becomes range-partitioned by check-in month, so searches around the bookable horizon only visit the
+-- partitions of a couple of months, and past months can be detached without rewriting the rest of the table.
+
+-- creates the partition holding the check-ins of the month starting on "month", unless it exists already.
+-- Also called by the partition maintenance job
+create function ensure_reservation_partition(month date) returns void as $$
+begin
+    execute format('create table if not exists %I partition of reservation for values from (%L) to (%L)',
+                   'reservation_p' || to_char(month, 'YYYY_MM'), month, (month + interval '1 month')::date);
+end;
+$$ language plpgsql;
+
+-- detached partitions are moved here, out of the way of the application
+create schema if not exists reservation_archive;
+
+alter table reservation rename to reservation_unpartitioned;
+alter table reservation_unpartitioned rename constraint reservation_pkey to reservation_unpartitioned_pkey;
+alter table reservation_unpartitioned drop constraint reservation_campsite_fkey;
+drop index reservation_checkin_idx;
+drop index reservation_checkout_idx;
+drop index reservation_campsite_stay_idx;
+
+-- the ids keep coming from the same sequence
+alter sequence reservation_id_seq owned by none;
+
+-- a partitioned table can only enforce uniqueness together with its partition key. A stay is at most a month long,
+-- so searches can also bound the check-in of the stays they look for, and get partitions pruned
+create table reservation (
+    id                          integer not null default nextval('reservation_id_seq'),
+    campsite_id                 integer not null,
+    email                       varchar(127) not null,
+    checkin                     timestamp not null,
+    checkout                    timestamp not null,
+    canceled                    boolean not null default false,
+    stay                        daterange not null generated always as (daterange(checkin::date, checkout::date, '[)')) stored,
+    CONSTRAINT reservation_pkey PRIMARY KEY(id, checkin),
+    CONSTRAINT reservation_campsite_fkey FOREIGN KEY(campsite_id) REFERENCES campsite(id),
+    CONSTRAINT reservation_stay_length_check CHECK (checkout <= checkin + interval '1 month')
+) partition by range (checkin);
+
+alter sequence reservation_id_seq owned by reservation.id;
+
+CREATE INDEX reservation_checkin_idx ON public.reservation (checkin);
+CREATE INDEX reservation_checkout_idx ON public.reservation (checkout);
+CREATE INDEX reservation_campsite_stay_idx ON public.reservation USING gist (campsite_id, stay) WHERE canceled = false;
+
+-- check-ins outside of every monthly partition, e.g. history older than the partitions created below
+create table reservation_default partition of reservation default;
+
+-- every month with reservations, up to three months ahead. The maintenance job keeps creating them from there
+do $$
+declare
+    month date;
+begin
+    for month in
+        select generate_series(
+                   least(date_trunc('month', coalesce(min(checkin), localtimestamp)), date_trunc('month', localtimestamp)),
+                   date_trunc('month', localtimestamp) + interval '3 months',
+                   interval '1 month')::date
+          from reservation_unpartitioned
+    loop
+        perform ensure_reservation_partition(month);
+    end loop;
+end;
+$$;
+
+insert into reservation (id, campsite_id, email, checkin, checkout, canceled)
+select id, campsite_id, email, checkin, checkout, canceled from reservation_unpartitioned;
+
+-- reservation ids aren't unique by themselves anymore, and archived reservations leave the table
+alter table idempotency_key drop constraint idempotency_key_reservation_fkey;
+
+drop table reservation_unpartitioned;
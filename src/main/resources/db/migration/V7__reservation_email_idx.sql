@@ -0,0 +1,2 @@
+-- a guest's reservations are looked up by e-mail and campsite, and paged through in id order
+CREATE INDEX reservation_email_idx ON public.reservation (email, campsite_id, id);
@@ -0,0 +1,22 @@
+-- takes the transaction level advisory locks of "ids" in array order, stopping at the first one held by another
+-- transaction. All or nothing: the locks taken before a busy one are released before returning false, so a booking
+-- that gives up never keeps part of its nights locked while it backs off
+create function try_advisory_xact_locks(ids bigint[]) returns boolean as $$
+declare
+    id bigint;
+begin
+    -- locks taken inside the block are released when its subtransaction is rolled back by the exception
+    begin
+        foreach id in array ids loop
+            if not pg_try_advisory_xact_lock(id) then
+                raise exception using errcode = 'lock_not_available';
+            end if;
+        end loop;
+    exception
+        when lock_not_available then
+            return false;
+    end;
+
+    return true;
+end;
+$$ language plpgsql;
@@ -0,0 +1,34 @@
+-- check-ins of a month without a partition land in reservation_default, and a partition can't be created over them:
+-- Postgres refuses while the default partition holds rows of its range. They are moved out of the default partition
+-- and into the new one, in the same transaction
+create or replace function ensure_reservation_partition(month date) returns void as $$
+declare
+    partition text := 'reservation_p' || to_char(month, 'YYYY_MM');
+    next_month date := (month + interval '1 month')::date;
+begin
+    if exists (select 1 from pg_tables where schemaname = 'public' and tablename = partition) then
+        return;
+    end if;
+
+    -- taken before the rows are moved: a check-in of the month inserted after the copy would make the create fail.
+    -- It conflicts with itself too, so a concurrent call finds the partition already created
+    lock table reservation_default in share row exclusive mode;
+
+    if exists (select 1 from pg_tables where schemaname = 'public' and tablename = partition) then
+        return;
+    end if;
+
+    create temporary table reservation_moved on commit drop as
+        select id, campsite_id, email, checkin, checkout, canceled from reservation_default
+         where checkin >= month and checkin < next_month;
+
+    delete from reservation_default where checkin >= month and checkin < next_month;
+
+    execute format('create table %I partition of reservation for values from (%L) to (%L)', partition, month, next_month);
+
+    insert into reservation (id, campsite_id, email, checkin, checkout, canceled)
+    select id, campsite_id, email, checkin, checkout, canceled from reservation_moved;
+
+    drop table reservation_moved;
+end;
+$$ language plpgsql;
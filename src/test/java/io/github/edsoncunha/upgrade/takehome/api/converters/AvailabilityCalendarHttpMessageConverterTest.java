@@ -0,0 +1,56 @@
+package io.github.edsoncunha.upgrade.takehome.api.converters;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.AvailabilityCalendar;
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.OccupancyIndex;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AvailabilityCalendarHttpMessageConverterTest {
+    private final AvailabilityCalendarHttpMessageConverter converter = new AvailabilityCalendarHttpMessageConverter(new JsonFactory());
+
+    // only January 3rd is full
+    private final AvailabilityCalendar calendar = OccupancyIndex.of(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 5),
+            List.of(Reservation.builder().id(1)
+                    .checkin(LocalDate.of(2023, 1, 3).atStartOfDay())
+                    .checkout(LocalDate.of(2023, 1, 4).atStartOfDay())
+                    .build()), null)
+            .availability(1);
+
+    private String write(MediaType mediaType) throws IOException {
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        converter.write(calendar, mediaType, outputMessage);
+        return outputMessage.getBodyAsString();
+    }
+
+    @Test
+    @DisplayName("application/json lists every available date")
+    public void jsonListsAvailableDates() throws IOException {
+        assertThat(write(MediaType.APPLICATION_JSON))
+                .isEqualTo("[\"2023-01-01\",\"2023-01-02\",\"2023-01-04\",\"2023-01-05\"]");
+    }
+
+    @Test
+    @DisplayName("The ranges representation lists intervals of consecutive available dates")
+    public void rangesListsIntervals() throws IOException {
+        assertThat(write(AvailabilityCalendarHttpMessageConverter.RANGES_JSON))
+                .isEqualTo("[{\"from\":\"2023-01-01\",\"to\":\"2023-01-02\"},{\"from\":\"2023-01-04\",\"to\":\"2023-01-05\"}]");
+    }
+
+    @Test
+    @DisplayName("The bitmap representation is anchored at the first day searched")
+    public void bitmapIsAnchoredAtFirstDay() throws IOException {
+        // 0001 1011
+        assertThat(write(AvailabilityCalendarHttpMessageConverter.BITMAP_JSON))
+                .isEqualTo("{\"from\":\"2023-01-01\",\"days\":5,\"bitmap\":\"Gw==\"}");
+    }
+}
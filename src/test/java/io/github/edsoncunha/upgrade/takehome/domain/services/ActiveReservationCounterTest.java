@@ -0,0 +1,154 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services;
+
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.MaxActiveReservationsExceededException;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationJdbcOperations.CheckoutHandler;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationRepository;
+import io.github.edsoncunha.upgrade.takehome.etc.Clock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ActiveReservationCounterTest {
+    private static final LocalDate TODAY = LocalDate.of(2023, 1, 1);
+    private static final String GUEST = "guest@mail.com";
+
+    @Mock
+    private ReservationRepository repositoryMock;
+    @Mock
+    private Clock clockMock;
+
+    private ActiveReservationCounter counter;
+
+    @BeforeEach
+    public void setUp() {
+        lenient().when(clockMock.now()).thenReturn(TODAY.atStartOfDay());
+        counter = new ActiveReservationCounter(repositoryMock, clockMock, 2);
+    }
+
+    @Test
+    @DisplayName("A guest can't hold more active reservations than the quota")
+    public void guestCantGoPastTheQuota() {
+        counter.add(GUEST, TODAY.plusDays(3));
+        counter.add(GUEST, TODAY.plusDays(5));
+
+        assertThrows(MaxActiveReservationsExceededException.class, () -> counter.add(GUEST, TODAY.plusDays(7)));
+        assertThat(counter.activeReservations(GUEST)).isEqualTo(2);
+        assertThat(counter.activeReservations("other@mail.com")).isZero();
+    }
+
+    @Test
+    @DisplayName("Canceled and checked out reservations don't count")
+    public void onlyActiveReservationsCount() {
+        counter.add(GUEST, TODAY.plusDays(1));
+        counter.add(GUEST, TODAY.plusDays(3));
+        counter.remove(GUEST, TODAY.plusDays(3));
+
+        assertThat(counter.activeReservations(GUEST)).isEqualTo(1);
+
+        when(clockMock.now()).thenReturn(TODAY.plusDays(1).atStartOfDay());
+
+        assertThat(counter.activeReservations(GUEST)).isZero();
+    }
+
+    @Test
+    @DisplayName("Changes are undone when their transaction rolls back")
+    public void changesAreUndoneOnRollback() {
+        counter.add(GUEST, TODAY.plusDays(3));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            counter.add(GUEST, TODAY.plusDays(5));
+            counter.remove(GUEST, TODAY.plusDays(3));
+
+            assertThat(counter.activeReservations(GUEST)).isEqualTo(1);
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // back to the reservation checking out on day 3 only
+        counter.remove(GUEST, TODAY.plusDays(5));
+        assertThat(counter.activeReservations(GUEST)).isEqualTo(1);
+        counter.remove(GUEST, TODAY.plusDays(3));
+        assertThat(counter.activeReservations(GUEST)).isZero();
+    }
+
+    @Test
+    @DisplayName("Reconciliation replaces the counts with the active reservations in the database")
+    public void reconciliationReloadsCounts() {
+        counter.add(GUEST, TODAY.plusDays(3));
+
+        doAnswer(invocation -> {
+            CheckoutHandler handler = invocation.getArgument(1);
+            handler.checkout("other@mail.com", TODAY.plusDays(2).toEpochDay());
+            handler.checkout("other@mail.com", TODAY.plusDays(4).toEpochDay());
+            return null;
+        }).when(repositoryMock).forEachCheckoutAfter(eq(TODAY), any());
+
+        counter.reconcile();
+
+        assertThat(counter.activeReservations(GUEST)).isZero();
+        assertThat(counter.activeReservations("other@mail.com")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("An email written differently is the same guest")
+    public void emailsAreNormalized() {
+        counter.add(GUEST, TODAY.plusDays(3));
+        counter.add(" Guest@Mail.com", TODAY.plusDays(5));
+
+        assertThrows(MaxActiveReservationsExceededException.class, () -> counter.add("GUEST@MAIL.COM", TODAY.plusDays(7)));
+        assertThat(counter.activeReservations("Guest@mail.com ")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("A rollback after a reconciliation doesn't undo changes of other reservations")
+    public void rollbackAfterReconciliationLeavesNewCountsAlone() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            counter.add(GUEST, TODAY.plusDays(3));
+
+            // the database also has another reservation of the guest checking out the same day
+            doAnswer(invocation -> {
+                CheckoutHandler handler = invocation.getArgument(1);
+                handler.checkout(GUEST, TODAY.plusDays(3).toEpochDay());
+                return null;
+            }).when(repositoryMock).forEachCheckoutAfter(eq(TODAY), any());
+
+            counter.reconcile();
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(counter.activeReservations(GUEST)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("A quota of 0 counts nothing")
+    public void quotaOfZeroIsOff() {
+        ActiveReservationCounter disabled = new ActiveReservationCounter(repositoryMock, clockMock, 0);
+
+        disabled.add(GUEST, TODAY.plusDays(3));
+        disabled.reconcile();
+
+        assertThat(disabled.activeReservations(GUEST)).isZero();
+        verifyNoInteractions(repositoryMock);
+    }
+}
@@ -0,0 +1,135 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services;
+
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationJdbcOperations.StayHandler;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationRepository;
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.AvailabilityCalendar;
+import io.github.edsoncunha.upgrade.takehome.etc.Clock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AvailabilitySnapshotsTest {
+    private static final LocalDate TODAY = LocalDate.of(2023, 1, 1);
+    private static final long CAMPSITE = 1;
+    private static final long OTHER_CAMPSITE = 2;
+
+    @Mock
+    private ReservationRepository repositoryMock;
+    @Mock
+    private Clock clockMock;
+
+    private AvailabilitySnapshots snapshots;
+
+    @BeforeEach
+    public void setUp() {
+        snapshots = new AvailabilitySnapshots(repositoryMock, clockMock);
+    }
+
+    @Test
+    @DisplayName("Searches inside the horizon are answered from the snapshot, without going to the database again")
+    public void searchesInsideHorizonAreAnsweredFromSnapshot() {
+        when(clockMock.now()).thenReturn(TODAY.atStartOfDay());
+        doAnswer(invocation -> {
+            invocation.<StayHandler>getArgument(4).stay(TODAY.plusDays(2).toEpochDay(), TODAY.plusDays(4).toEpochDay());
+            return null;
+        }).when(repositoryMock).forEachStayInPeriod(eq(CAMPSITE), eq(TODAY), eq(TODAY.plusDays(30)), eq(0L), any());
+
+        snapshots.availability(CAMPSITE, TODAY, TODAY, 1);
+        AvailabilityCalendar calendar = snapshots.availability(CAMPSITE, TODAY.minusDays(3), TODAY.plusDays(5), 1);
+
+        assertThat(calendar.firstDay()).isEqualTo(TODAY);
+        assertThat(calendar.availableDates()).containsExactly(TODAY, TODAY.plusDays(1), TODAY.plusDays(4), TODAY.plusDays(5));
+        verify(repositoryMock, times(1)).forEachStayInPeriod(anyLong(), any(), any(), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Every campsite has its own snapshot")
+    public void campsitesHaveTheirOwnSnapshot() {
+        when(clockMock.now()).thenReturn(TODAY.atStartOfDay());
+        // the only stay is at CAMPSITE
+        doAnswer(invocation -> {
+            if (invocation.<Long>getArgument(0) == CAMPSITE) {
+                invocation.<StayHandler>getArgument(4).stay(TODAY.toEpochDay(), TODAY.plusDays(1).toEpochDay());
+            }
+            return null;
+        }).when(repositoryMock).forEachStayInPeriod(anyLong(), any(), any(), anyLong(), any());
+
+        assertThat(snapshots.availability(CAMPSITE, TODAY, TODAY, 1).availableDates()).isEmpty();
+        assertThat(snapshots.availability(OTHER_CAMPSITE, TODAY, TODAY, 1).availableDates()).containsExactly(TODAY);
+    }
+
+    @Test
+    @DisplayName("Searches going beyond the horizon are not covered")
+    public void searchesBeyondHorizonAreNotCovered() {
+        when(clockMock.now()).thenReturn(TODAY.atStartOfDay());
+
+        assertThat(snapshots.covers(TODAY, TODAY.plusDays(30))).isTrue();
+        assertThat(snapshots.covers(TODAY, TODAY.plusDays(31))).isFalse();
+        assertThat(snapshots.availability(CAMPSITE, TODAY, TODAY.plusDays(31), 1)).isNull();
+        verifyNoInteractions(repositoryMock);
+    }
+
+    @Test
+    @DisplayName("A snapshot taken before midnight is rebuilt by the next search")
+    public void snapshotFromYesterdayIsRebuilt() {
+        when(clockMock.now()).thenReturn(TODAY.atTime(23, 59));
+        snapshots.refresh(CAMPSITE);
+
+        when(clockMock.now()).thenReturn(TODAY.plusDays(1).atStartOfDay());
+        AvailabilityCalendar calendar = snapshots.availability(CAMPSITE, TODAY.plusDays(1), TODAY.plusDays(2), 1);
+
+        assertThat(calendar.firstDay()).isEqualTo(TODAY.plusDays(1));
+        verify(repositoryMock).forEachStayInPeriod(eq(CAMPSITE), eq(TODAY.plusDays(1)), any(), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("A snapshot that can't be rebuilt is dropped, so searches go to the database")
+    public void failedRefreshDropsSnapshot() {
+        when(clockMock.now()).thenReturn(TODAY.atStartOfDay());
+        doNothing()
+                .doThrow(new IllegalStateException("database is down"))
+                .when(repositoryMock).forEachStayInPeriod(anyLong(), any(), any(), anyLong(), any());
+
+        assertThat(snapshots.availability(CAMPSITE, TODAY, TODAY, 1)).isNotNull();
+
+        snapshots.refreshAfterCommit(CAMPSITE);
+        assertThat(snapshots.availability(CAMPSITE, TODAY, TODAY, 1)).isNull();
+    }
+
+    @Test
+    @DisplayName("Changes made on other nodes only rebuild the snapshots this node has")
+    public void remoteChangesOnlyRebuildKeptSnapshots() {
+        when(clockMock.now()).thenReturn(TODAY.atStartOfDay());
+
+        snapshots.availability(CAMPSITE, TODAY, TODAY, 1);
+        snapshots.refreshIfKept(CAMPSITE);
+        snapshots.refreshIfKept(OTHER_CAMPSITE);
+
+        verify(repositoryMock, times(2)).forEachStayInPeriod(eq(CAMPSITE), any(), any(), anyLong(), any());
+        verify(repositoryMock, never()).forEachStayInPeriod(eq(OTHER_CAMPSITE), any(), any(), anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("A change made on another node while a snapshot is being built rebuilds it")
+    public void remoteChangeDuringFirstBuildRebuildsSnapshot() {
+        when(clockMock.now()).thenReturn(TODAY.atStartOfDay());
+        // the change is notified while the first build is reading the campsite
+        doAnswer(invocation -> {
+            snapshots.refreshIfKept(CAMPSITE);
+            return null;
+        }).doNothing().when(repositoryMock).forEachStayInPeriod(eq(CAMPSITE), any(), any(), anyLong(), any());
+
+        snapshots.availability(CAMPSITE, TODAY, TODAY, 1);
+
+        verify(repositoryMock, times(2)).forEachStayInPeriod(eq(CAMPSITE), any(), any(), anyLong(), any());
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.IdempotencyKeyReusedException;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.IdempotencyKeyRepository;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.IdempotencyKeyRepository.IdempotencyKey;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotentReservationServiceTest {
+    private static final LocalDate ARRIVAL_DATE = LocalDate.of(2023, 1, 10);
+    private static final long CAMPSITE = 1;
+
+    @Mock
+    private ReservationService reservationServiceMock;
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepositoryMock;
+    @Mock
+    private ReservationRepository reservationRepositoryMock;
+
+    private IdempotentReservationService service;
+
+    @BeforeEach
+    public void setUp() {
+        service = new IdempotentReservationService(reservationServiceMock, idempotencyKeyRepositoryMock, reservationRepositoryMock, 100, Duration.ofHours(1));
+    }
+
+    @Test
+    @DisplayName("A retry with the same key gets the first reservation without booking again")
+    public void retryGetsFirstReservation() {
+        Reservation reservation = Reservation.builder().id(7).email("dummy@test.com").build();
+
+        when(idempotencyKeyRepositoryMock.claim(eq("key-1"), any())).thenReturn(Optional.empty());
+        when(reservationServiceMock.reserve(CAMPSITE, "dummy@test.com", ARRIVAL_DATE, 2)).thenReturn(reservation);
+        when(reservationRepositoryMock.findById(7L)).thenReturn(Optional.of(reservation));
+
+        Reservation first = service.reserve("key-1", CAMPSITE, "dummy@test.com", ARRIVAL_DATE, 2);
+        Reservation retry = service.reserve("key-1", CAMPSITE, "dummy@test.com", ARRIVAL_DATE, 2);
+
+        assertThat(retry).isEqualTo(first);
+        verify(reservationServiceMock, times(1)).reserve(anyLong(), any(), any(), anyInt());
+        verify(idempotencyKeyRepositoryMock, times(1)).claim(any(), any());
+        verify(idempotencyKeyRepositoryMock).complete("key-1", 7);
+    }
+
+    @Test
+    @DisplayName("A key already used by another node is replayed from the database")
+    public void keyUsedElsewhereIsReplayed() {
+        Reservation reservation = Reservation.builder().id(7).email("dummy@test.com").build();
+
+        when(idempotencyKeyRepositoryMock.claim(eq("key-1"), any()))
+                .thenReturn(Optional.of(new IdempotencyKey("key-1", "1|dummy@test.com|2023-01-10|2", 7)));
+        when(reservationRepositoryMock.findById(7L)).thenReturn(Optional.of(reservation));
+
+        assertThat(service.reserve("key-1", CAMPSITE, "dummy@test.com", ARRIVAL_DATE, 2)).isEqualTo(reservation);
+        verifyNoInteractions(reservationServiceMock);
+    }
+
+    @Test
+    @DisplayName("A key can't be reused for a different request")
+    public void keyCantBeReusedForDifferentRequest() {
+        when(idempotencyKeyRepositoryMock.claim(eq("key-1"), any()))
+                .thenReturn(Optional.of(new IdempotencyKey("key-1", "1|dummy@test.com|2023-01-10|2", 7)));
+
+        assertThrows(IdempotencyKeyReusedException.class, () -> service.reserve("key-1", CAMPSITE, "dummy@test.com", ARRIVAL_DATE, 3));
+        verifyNoInteractions(reservationServiceMock);
+    }
+
+    @Test
+    @DisplayName("A key can't be reused for the same stay at another campsite")
+    public void keyCantBeReusedAtAnotherCampsite() {
+        when(idempotencyKeyRepositoryMock.claim(eq("key-1"), any()))
+                .thenReturn(Optional.of(new IdempotencyKey("key-1", "1|dummy@test.com|2023-01-10|2", 7)));
+
+        assertThrows(IdempotencyKeyReusedException.class, () -> service.reserve("key-1", 2, "dummy@test.com", ARRIVAL_DATE, 2));
+        verifyNoInteractions(reservationServiceMock);
+    }
+}
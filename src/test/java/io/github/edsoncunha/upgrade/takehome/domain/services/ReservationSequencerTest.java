@@ -0,0 +1,126 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.NoPlacesAvailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationSequencerTest {
+    private static final LocalDate ARRIVAL_DATE = LocalDate.of(2023, 1, 10);
+    private static final long CAMPSITE = 1;
+    private static final ReservationCommand COMMAND = new ReservationCommand("dummy@test.com", ARRIVAL_DATE, 2);
+
+    @Mock
+    private ReservationService reservationServiceMock;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ReservationSequencer sequencer;
+
+    @AfterEach
+    public void tearDown() {
+        sequencer.stop();
+    }
+
+    private ReservationSequencer sequencer(boolean enabled) {
+        sequencer = new ReservationSequencer(reservationServiceMock, meterRegistry, enabled, 16, 4, Duration.ofSeconds(5));
+        sequencer.start();
+        return sequencer;
+    }
+
+    @Test
+    @DisplayName("When disabled, bookings go straight to the reservation service")
+    public void disabledSequencerDelegatesToService() {
+        Reservation reservation = Reservation.builder().id(1).build();
+        when(reservationServiceMock.reserve(CAMPSITE, "dummy@test.com", ARRIVAL_DATE, 2)).thenReturn(reservation);
+
+        assertThat(sequencer(false).reserve(CAMPSITE, "dummy@test.com", ARRIVAL_DATE, 2)).isEqualTo(reservation);
+        verify(reservationServiceMock, never()).reserveAll(anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("A queued booking gets the reservation created by its batch")
+    public void queuedBookingGetsItsReservation() {
+        Reservation reservation = Reservation.builder().id(1).build();
+        when(reservationServiceMock.reserveAll(CAMPSITE, List.of(COMMAND))).thenReturn(List.of(ReservationOutcome.created(reservation)));
+
+        assertThat(sequencer(true).reserve(CAMPSITE, "dummy@test.com", ARRIVAL_DATE, 2)).isEqualTo(reservation);
+        verify(reservationServiceMock, never()).reserve(anyLong(), any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("A queued booking gets the constraint it violated")
+    public void queuedBookingGetsItsViolation() {
+        when(reservationServiceMock.reserveAll(CAMPSITE, List.of(COMMAND))).thenReturn(List.of(ReservationOutcome.rejected(new NoPlacesAvailableException())));
+
+        assertThrows(NoPlacesAvailableException.class, () -> sequencer(true).reserve(CAMPSITE, "dummy@test.com", ARRIVAL_DATE, 2));
+    }
+
+    @Test
+    @DisplayName("A failed batch doesn't stop the writer")
+    public void failedBatchDoesNotStopWriter() {
+        Reservation reservation = Reservation.builder().id(1).build();
+        when(reservationServiceMock.reserveAll(CAMPSITE, List.of(COMMAND)))
+                .thenThrow(new IllegalStateException("database is down"))
+                .thenReturn(List.of(ReservationOutcome.created(reservation)));
+
+        sequencer(true);
+
+        assertThrows(IllegalStateException.class, () -> sequencer.reserve(CAMPSITE, "dummy@test.com", ARRIVAL_DATE, 2));
+        assertThat(sequencer.reserve(CAMPSITE, "dummy@test.com", ARRIVAL_DATE, 2)).isEqualTo(reservation);
+    }
+
+    @Test
+    @DisplayName("When a batch fails, its stays are booked again one by one and only the failing one fails")
+    public void failedBatchIsRetriedStayByStay() throws Exception {
+        ReservationCommand blocking = new ReservationCommand("blocking@test.com", ARRIVAL_DATE, 2);
+        ReservationCommand failing = new ReservationCommand("failing@test.com", ARRIVAL_DATE, 2);
+        Reservation reservation = Reservation.builder().id(1).build();
+        CountDownLatch writerBusy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // keeps the writer busy until both stays are queued, so they end up in the same batch
+        when(reservationServiceMock.reserveAll(CAMPSITE, List.of(blocking))).thenAnswer(invocation -> {
+            writerBusy.countDown();
+            release.await();
+            return List.of(ReservationOutcome.created(Reservation.builder().id(2).build()));
+        });
+        when(reservationServiceMock.reserveAll(eq(CAMPSITE), argThat(commands -> commands.size() == 2)))
+                .thenThrow(new IllegalStateException("value too long"));
+        when(reservationServiceMock.reserveAll(CAMPSITE, List.of(COMMAND))).thenReturn(List.of(ReservationOutcome.created(reservation)));
+        when(reservationServiceMock.reserveAll(CAMPSITE, List.of(failing))).thenThrow(new IllegalStateException("value too long"));
+
+        sequencer(true);
+
+        CompletableFuture.runAsync(() -> sequencer.reserve(CAMPSITE, "blocking@test.com", ARRIVAL_DATE, 2));
+        writerBusy.await();
+
+        CompletableFuture<Reservation> succeeding = CompletableFuture.supplyAsync(() -> sequencer.reserve(CAMPSITE, "dummy@test.com", ARRIVAL_DATE, 2));
+        CompletableFuture<Reservation> failed = CompletableFuture.supplyAsync(() -> sequencer.reserve(CAMPSITE, "failing@test.com", ARRIVAL_DATE, 2));
+
+        while (meterRegistry.get(ReservationSequencer.QUEUE_SIZE_METRIC).gauge().value() < 2) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        assertThat(succeeding.get()).isEqualTo(reservation);
+        assertThat(failed).failsWithin(Duration.ofSeconds(5)).withThrowableOfType(ExecutionException.class)
+                .withCauseInstanceOf(IllegalStateException.class);
+    }
+}
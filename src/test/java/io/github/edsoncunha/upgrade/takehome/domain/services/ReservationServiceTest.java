@@ -1,9 +1,15 @@
 package io.github.edsoncunha.upgrade.takehome.domain.services;
 
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Campsite;
 import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.InvalidReservationException;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.MaxActiveReservationsExceededException;
 import io.github.edsoncunha.upgrade.takehome.domain.exceptions.NoPlacesAvailableException;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.ReservationMaxDurationException;
 import io.github.edsoncunha.upgrade.takehome.domain.exceptions.ReservationNotFoundException;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationJdbcOperations.StayHandler;
 import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationRepository;
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.OccupancyIndex;
 import io.github.edsoncunha.upgrade.takehome.domain.services.validation.ReservationRule;
 import io.github.edsoncunha.upgrade.takehome.etc.Clock;
 import org.junit.jupiter.api.DisplayName;
@@ -19,11 +25,15 @@ import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -31,12 +41,35 @@ import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class ReservationServiceTest {
+    private static final long CAMPSITE = Campsite.DEFAULT_ID;
+
     private final LockManager bypassLockManager = new LockManager() {
         @Override
-        public <T> T lock(long id, Duration timeout, Supplier<T> operation) {
+        public <T> T lock(Collection<Long> ids, Duration timeout, Supplier<T> operation) {
             return operation.get();
         }
     };
+    private final OccupancyLedger roomyOccupancyLedger = new OccupancyLedger() {
+        @Override
+        public boolean claim(long campsiteId, LocalDate checkinDate, LocalDate checkoutDate, int capacity) {
+            return true;
+        }
+
+        @Override
+        public void release(long campsiteId, LocalDate checkinDate, LocalDate checkoutDate) {
+        }
+
+        @Override
+        public OccupancyIndex lockNights(long campsiteId, LocalDate firstNight, LocalDate lastCheckoutDate) {
+            return OccupancyIndex.builder(firstNight, lastCheckoutDate.minusDays(1)).build();
+        }
+
+        @Override
+        public void book(long campsiteId, OccupancyIndex bookedNights) {
+        }
+    };
+    private final AvailabilityInvalidationBus silentInvalidationBus = (campsiteId, firstNight, lastNight) -> {
+    };
     @Mock
     private Clock clockMock;
     @Mock
@@ -44,14 +77,32 @@ class ReservationServiceTest {
 
     @Mock
     private CacheManager cacheManager;
+    @Mock
+    private AvailabilitySnapshots availabilitySnapshots;
+    @Mock
+    private ActiveReservationCounter activeReservations;
+    @Mock
+    private AvailabilityVersion availabilityVersion;
 
     private ReservationService.ReservationServiceBuilder serviceBuilderFor(List<ReservationRule> reservationRules) {
         return ReservationService.builder()
+                .campsites(campsitesWithCapacity(0))
                 .clock(clockMock)
                 .reservationRules(reservationRules)
                 .repository(repositoryMock)
                 .cacheManager(cacheManager)
-                .lockManager(bypassLockManager);
+                .lockManager(bypassLockManager)
+                .occupancyLedger(roomyOccupancyLedger)
+                .invalidationBus(silentInvalidationBus)
+                .availabilitySnapshots(availabilitySnapshots)
+                .activeReservations(activeReservations)
+                .availabilityVersion(availabilityVersion);
+    }
+
+    private CampsiteService campsitesWithCapacity(int capacity) {
+        CampsiteService campsites = mock(CampsiteService.class);
+        lenient().when(campsites.capacityOf(anyLong())).thenReturn(capacity);
+        return campsites;
     }
 
     private LocalDateTime january(int day, int year) {
@@ -67,7 +118,7 @@ class ReservationServiceTest {
             List<ReservationRule> noRules = Collections.emptyList();
             // just runs the operation it gets
             ReservationService service = serviceBuilderFor(noRules)
-                    .campsiteCapacity(1)
+                    .campsites(campsitesWithCapacity(1))
                     .build();
 
             when(clockMock.now()).thenReturn(LocalDateTime.now().plusDays(-1));
@@ -85,12 +136,13 @@ class ReservationServiceTest {
             LocalDate arrivalDate = LocalDate.now().plusDays(1);
             int lengthOfStay = 1;
 
-            Reservation returnedReservation = service.reserve(email, arrivalDate, lengthOfStay);
+            Reservation returnedReservation = service.reserve(CAMPSITE, email, arrivalDate, lengthOfStay);
 
             // then
             Mockito.verify(repositoryMock).save(any());
 
             assertThat(reservationSentToDatabase.get()).isNotNull();
+            assertThat(reservationSentToDatabase.get().getCampsiteId()).isEqualTo(CAMPSITE);
             assertThat(reservationSentToDatabase.get().getEmail()).isEqualTo(email);
             assertThat(reservationSentToDatabase.get().getCheckin()).isEqualTo(arrivalDate.atStartOfDay());
             assertThat(reservationSentToDatabase.get().getCheckout()).isEqualTo(arrivalDate.plusDays(lengthOfStay).atStartOfDay());
@@ -104,7 +156,7 @@ class ReservationServiceTest {
             List<ReservationRule> noRules = Collections.emptyList();
             // just runs the operation it gets
             ReservationService service = serviceBuilderFor(noRules)
-                    .campsiteCapacity(1)
+                    .campsites(campsitesWithCapacity(1))
                     .build();
 
             when(clockMock.now()).thenReturn(LocalDateTime.now().plusDays(-1));
@@ -114,7 +166,7 @@ class ReservationServiceTest {
             int lengthOfStay = 1;
 
             // emulate an existing reservation with same parameters
-            when(repositoryMock.getReservationsInPeriod(any(), any())).thenReturn(
+            when(repositoryMock.getReservationsInPeriod(anyLong(), any(), any())).thenReturn(
                     Collections.singletonList(
                             Reservation.builder()
                                     .id(1)
@@ -125,12 +177,135 @@ class ReservationServiceTest {
             );
 
             // when
-            assertThrows(NoPlacesAvailableException.class, () -> service.reserve(email, arrivalDate, lengthOfStay));
+            assertThrows(NoPlacesAvailableException.class, () -> service.reserve(CAMPSITE, email, arrivalDate, lengthOfStay));
 
             // then
             Mockito.verify(repositoryMock, times(0)).save(any());
         }
 
+        @Test
+        @DisplayName("A reservation must fail if the occupancy ledger refuses its nights")
+        public void reservationShouldFailIfLedgerRefusesNights() {
+            List<ReservationRule> noRules = Collections.emptyList();
+            OccupancyLedger fullOccupancyLedger = mock(OccupancyLedger.class);
+
+            ReservationService service = serviceBuilderFor(noRules)
+                    .campsites(campsitesWithCapacity(1))
+                    .occupancyLedger(fullOccupancyLedger)
+                    .build();
+
+            when(clockMock.now()).thenReturn(LocalDateTime.now().plusDays(-1));
+
+            String email = "dummy@test.com";
+            LocalDate arrivalDate = LocalDate.now().plusDays(1);
+            int lengthOfStay = 2;
+
+            // a concurrent booking took the last place after the availability pre-check
+            when(fullOccupancyLedger.claim(CAMPSITE, arrivalDate, arrivalDate.plusDays(lengthOfStay), 1)).thenReturn(false);
+
+            assertThrows(NoPlacesAvailableException.class, () -> service.reserve(CAMPSITE, email, arrivalDate, lengthOfStay));
+
+            Mockito.verify(repositoryMock, times(0)).save(any());
+        }
+
+    }
+
+    @Nested
+    @DisplayName("Batch reservation")
+    class BatchReservationTests {
+        @Test
+        @DisplayName("Stays are booked in order until the campsite is full, and every one gets an outcome")
+        public void staysAreBookedInOrderUntilCampsiteIsFull() {
+            ReservationRule rejectsBlockedGuest = (userEmail, arrivalDate, lengthOfStay) -> {
+                if (userEmail.equals("blocked@test.com")) {
+                    throw new ReservationMaxDurationException(3);
+                }
+            };
+
+            ReservationService service = serviceBuilderFor(List.of(rejectsBlockedGuest))
+                    .campsites(campsitesWithCapacity(1))
+                    .build();
+
+            when(clockMock.now()).thenReturn(LocalDateTime.now().plusDays(-1));
+
+            LocalDate arrivalDate = LocalDate.now().plusDays(1);
+
+            List<ReservationOutcome> outcomes = service.reserveAll(CAMPSITE, List.of(
+                    new ReservationCommand("first@test.com", arrivalDate, 2),
+                    new ReservationCommand("blocked@test.com", arrivalDate.plusDays(5), 1),
+                    new ReservationCommand("second@test.com", arrivalDate.plusDays(1), 1),
+                    new ReservationCommand("third@test.com", arrivalDate.plusDays(2), 1)
+            ));
+
+            assertThat(outcomes).hasSize(4);
+            assertThat(outcomes.get(0).isCreated()).isTrue();
+            assertThat(outcomes.get(1).violation()).isInstanceOf(ReservationMaxDurationException.class);
+            assertThat(outcomes.get(2).violation()).isInstanceOf(NoPlacesAvailableException.class);
+            assertThat(outcomes.get(3).isCreated()).isTrue();
+
+            verify(repositoryMock).insertAll(List.of(outcomes.get(0).reservation(), outcomes.get(3).reservation()));
+        }
+
+        @Test
+        @DisplayName("Stays that can't be booked as sent are rejected on their own, and the others are booked")
+        public void invalidStaysAreRejectedOnTheirOwn() {
+            // rules take the email and arrival date for granted
+            ReservationRule usesEmailAndArrivalDate = (userEmail, arrivalDate, lengthOfStay) -> {
+                userEmail.trim();
+                arrivalDate.plusDays(lengthOfStay);
+            };
+
+            ReservationService service = serviceBuilderFor(List.of(usesEmailAndArrivalDate))
+                    .campsites(campsitesWithCapacity(1))
+                    .build();
+
+            when(clockMock.now()).thenReturn(LocalDateTime.now().plusDays(-1));
+
+            LocalDate arrivalDate = LocalDate.now().plusDays(1);
+
+            List<ReservationOutcome> outcomes = service.reserveAll(CAMPSITE, List.of(
+                    new ReservationCommand(null, arrivalDate, 1),
+                    new ReservationCommand("dated@test.com", null, 1),
+                    new ReservationCommand("a".repeat(ReservationCommand.MAX_EMAIL_LENGTH) + "@test.com", arrivalDate, 1),
+                    new ReservationCommand("valid@test.com", arrivalDate, 1)
+            ));
+
+            assertThat(outcomes.get(0).violation()).isInstanceOf(InvalidReservationException.class);
+            assertThat(outcomes.get(1).violation()).isInstanceOf(InvalidReservationException.class);
+            assertThat(outcomes.get(2).violation()).isInstanceOf(InvalidReservationException.class);
+            assertThat(outcomes.get(3).isCreated()).isTrue();
+        }
+
+        @Test
+        @DisplayName("Stays of a guest past the quota are rejected, and the others are booked")
+        public void staysPastTheGuestQuotaAreRejected() {
+            ReservationService service = serviceBuilderFor(Collections.emptyList())
+                    .campsites(campsitesWithCapacity(1))
+                    .build();
+
+            when(clockMock.now()).thenReturn(LocalDateTime.now().plusDays(-1));
+
+            LocalDate arrivalDate = LocalDate.now().plusDays(1);
+
+            // a quota of one reservation per guest
+            Set<String> guests = new HashSet<>();
+            doAnswer(invocation -> {
+                if (!guests.add(invocation.getArgument(0))) {
+                    throw new MaxActiveReservationsExceededException(1);
+                }
+                return null;
+            }).when(activeReservations).add(anyString(), any());
+
+            List<ReservationOutcome> outcomes = service.reserveAll(CAMPSITE, List.of(
+                    new ReservationCommand("hoarder@test.com", arrivalDate, 1),
+                    new ReservationCommand("hoarder@test.com", arrivalDate.plusDays(1), 1),
+                    new ReservationCommand("other@test.com", arrivalDate.plusDays(1), 1)
+            ));
+
+            assertThat(outcomes.get(0).isCreated()).isTrue();
+            assertThat(outcomes.get(1).violation()).isInstanceOf(MaxActiveReservationsExceededException.class);
+            assertThat(outcomes.get(2).isCreated()).isTrue();
+        }
     }
 
     @Nested
@@ -149,7 +324,7 @@ class ReservationServiceTest {
             reservationRules.add(rule2);
 
             ReservationService service = serviceBuilderFor(reservationRules)
-                    .campsiteCapacity(0)
+                    .campsites(campsitesWithCapacity(0))
                     .build();
 
             String email = "dummy@mail.com";
@@ -157,8 +332,8 @@ class ReservationServiceTest {
             int lengthOfStay = 2;
 
             // skip the process of reserving, for simplicity
-            when(repositoryMock.getReservationsInPeriod(any(), any())).thenReturn(Collections.emptyList());
-            assertThrows(NoPlacesAvailableException.class, () -> service.reserve(email, arrivalDate, lengthOfStay));
+            when(repositoryMock.getReservationsInPeriod(anyLong(), any(), any())).thenReturn(Collections.emptyList());
+            assertThrows(NoPlacesAvailableException.class, () -> service.reserve(CAMPSITE, email, arrivalDate, lengthOfStay));
 
             verify(rule1).validate(email, arrivalDate, lengthOfStay);
             verify(rule2).validate(email, arrivalDate, lengthOfStay);
@@ -183,7 +358,7 @@ class ReservationServiceTest {
 
             doThrow(new NoPlacesAvailableException()).when(rule1).validate(email, arrivalDate, lengthOfStay);
 
-            assertThrows(NoPlacesAvailableException.class, () -> service.reserve(email, arrivalDate, lengthOfStay));
+            assertThrows(NoPlacesAvailableException.class, () -> service.reserve(CAMPSITE, email, arrivalDate, lengthOfStay));
 
             verify(rule1).validate(email, arrivalDate, lengthOfStay);
             verify(rule2, times(0)).validate(email, arrivalDate, lengthOfStay);
@@ -202,7 +377,7 @@ class ReservationServiceTest {
             when(clockMock.now()).thenReturn(january(1, 2023));
 
             ReservationService service = serviceBuilderFor(noReservationRules)
-                    .campsiteCapacity(3)
+                    .campsites(campsitesWithCapacity(3))
                     .build();
 
             LocalDate searchStartDate = LocalDate.parse("2023-01-01");
@@ -230,9 +405,14 @@ class ReservationServiceTest {
                     .checkin(january(1, 2023))
                     .checkout(january(4, 2023)).build());
 
-            when(repositoryMock.getReservationsInPeriod(any(), any())).thenReturn(reservations);
+            doAnswer(invocation -> {
+                StayHandler handler = invocation.getArgument(4);
+                reservations.forEach(reservation -> handler.stay(
+                        reservation.getCheckin().toLocalDate().toEpochDay(), reservation.getCheckout().toLocalDate().toEpochDay()));
+                return null;
+            }).when(repositoryMock).searchStaysInPeriod(eq(CAMPSITE), any(), any(), anyLong(), any());
 
-            List<LocalDate> availableDates = service.getAvailableDates(searchStartDate, searchEndDate);
+            List<LocalDate> availableDates = service.getAvailability(CAMPSITE, searchStartDate, searchEndDate).availableDates();
 
             assertThat(availableDates).containsExactlyInAnyOrder(
                     january(1, 2023).toLocalDate(),
@@ -252,16 +432,62 @@ class ReservationServiceTest {
             ReservationService service = serviceBuilderFor(noReservationRules).build();
 
             long reservationId = 10;
-            Reservation reservationMock = mock(Reservation.class);
+            Reservation reservationMock = spy(Reservation.builder().id(reservationId)
+                    .checkin(january(2, 2023))
+                    .checkout(january(3, 2023)).build());
 
-            when(repositoryMock.findById(reservationId)).thenReturn(Optional.of(reservationMock));
+            when(repositoryMock.findByIdForUpdate(reservationId)).thenReturn(Optional.of(reservationMock));
 
-            service.cancelReservation(reservationId);
+            service.cancelReservation(CAMPSITE, reservationId);
 
             verify(reservationMock).setCanceled(true);
             verify(repositoryMock).save(reservationMock);
         }
 
+        @Test
+        @DisplayName("Nights of a canceled reservation are given back to the occupancy ledger")
+        public void nightsAreReleasedWhenReservationIsCanceled() {
+            List<ReservationRule> noReservationRules = Collections.emptyList();
+            OccupancyLedger occupancyLedgerMock = mock(OccupancyLedger.class);
+
+            ReservationService service = serviceBuilderFor(noReservationRules)
+                    .occupancyLedger(occupancyLedgerMock)
+                    .build();
+
+            long reservationId = 10;
+            Reservation reservation = Reservation.builder().id(reservationId)
+                    .checkin(january(2, 2023))
+                    .checkout(january(4, 2023)).build();
+
+            when(repositoryMock.findByIdForUpdate(reservationId)).thenReturn(Optional.of(reservation));
+
+            service.cancelReservation(CAMPSITE, reservationId);
+            // canceling twice must not release the nights again
+            service.cancelReservation(CAMPSITE, reservationId);
+
+            verify(occupancyLedgerMock, times(1)).release(CAMPSITE, january(2, 2023).toLocalDate(), january(4, 2023).toLocalDate());
+        }
+
+        @Test
+        @DisplayName("A reservation can't be canceled through another campsite")
+        public void reservationOfAnotherCampsiteIsNotFound() {
+            List<ReservationRule> noReservationRules = Collections.emptyList();
+
+            ReservationService service = serviceBuilderFor(noReservationRules).build();
+
+            long reservationId = 10;
+            Reservation reservation = Reservation.builder().id(reservationId)
+                    .campsiteId(CAMPSITE + 1)
+                    .checkin(january(2, 2023))
+                    .checkout(january(3, 2023)).build();
+
+            when(repositoryMock.findByIdForUpdate(reservationId)).thenReturn(Optional.of(reservation));
+
+            assertThrows(ReservationNotFoundException.class, () -> service.cancelReservation(CAMPSITE, reservationId));
+
+            verify(repositoryMock, times(0)).save(any());
+        }
+
         @Test
         @DisplayName("An exception is thrown if reservation is not found by id on database")
         public void exceptionIsThrownIfReservationToBeCancelledIsNotFoundOnDatabase() {
@@ -271,11 +497,64 @@ class ReservationServiceTest {
 
             long reservationId = 10;
 
-            when(repositoryMock.findById(reservationId)).thenReturn(Optional.empty());
+            when(repositoryMock.findByIdForUpdate(reservationId)).thenReturn(Optional.empty());
 
-            assertThrows(ReservationNotFoundException.class, () -> service.cancelReservation(reservationId));
+            assertThrows(ReservationNotFoundException.class, () -> service.cancelReservation(CAMPSITE, reservationId));
 
             verify(repositoryMock, times(0)).save(any());
         }
     }
+
+    @Nested
+    @DisplayName("Lookup by e-mail")
+    class LookupTests {
+        @Test
+        @DisplayName("A full page points to the next one, which starts after its last reservation")
+        public void fullPagePointsToTheNextOne() {
+            ReservationService service = serviceBuilderFor(Collections.emptyList()).build();
+
+            when(repositoryMock.streamByEmail(CAMPSITE, "some@mail.com", 0, 3))
+                    .thenReturn(Stream.of(reservation(1), reservation(2), reservation(5)));
+
+            ReservationPage page = service.findReservationsByEmail(CAMPSITE, "some@mail.com", 0, 2);
+
+            assertThat(page.reservations()).extracting(Reservation::getId).containsExactly(1L, 2L);
+            assertThat(page.next()).isEqualTo(2L);
+        }
+
+        @Test
+        @DisplayName("The last page has no next one")
+        public void lastPageHasNoNextOne() {
+            ReservationService service = serviceBuilderFor(Collections.emptyList()).build();
+
+            when(repositoryMock.streamByEmail(CAMPSITE, "some@mail.com", 2, 3))
+                    .thenReturn(Stream.of(reservation(5)));
+
+            ReservationPage page = service.findReservationsByEmail(CAMPSITE, "some@mail.com", 2, 2);
+
+            assertThat(page.reservations()).extracting(Reservation::getId).containsExactly(5L);
+            assertThat(page.next()).isNull();
+        }
+
+        @Test
+        @DisplayName("Page sizes are bounded")
+        public void pageSizesAreBounded() {
+            ReservationService service = serviceBuilderFor(Collections.emptyList()).build();
+
+            when(repositoryMock.streamByEmail(anyLong(), anyString(), anyLong(), anyInt())).thenAnswer(invocation -> Stream.empty());
+
+            service.findReservationsByEmail(CAMPSITE, "some@mail.com", 0, 100_000);
+            service.findReservationsByEmail(CAMPSITE, "some@mail.com", 0, 0);
+
+            verify(repositoryMock).streamByEmail(CAMPSITE, "some@mail.com", 0, ReservationService.MAX_PAGE_SIZE + 1);
+            verify(repositoryMock).streamByEmail(CAMPSITE, "some@mail.com", 0, 2);
+        }
+
+        private Reservation reservation(long id) {
+            return Reservation.builder().id(id)
+                    .email("some@mail.com")
+                    .checkin(january(2, 2023))
+                    .checkout(january(3, 2023)).build();
+        }
+    }
 }
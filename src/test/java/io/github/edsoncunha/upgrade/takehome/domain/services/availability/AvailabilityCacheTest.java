@@ -0,0 +1,123 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services.availability;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AvailabilityCacheTest {
+    private static final long CAMPSITE = 1;
+    private static final long OTHER_CAMPSITE = 2;
+
+    private final AvailabilityCache cache = new AvailabilityCache(new ConcurrentMapCache("availability"));
+
+    private AvailabilitySearchKey january(int firstDay, int lastDay) {
+        return january(CAMPSITE, firstDay, lastDay);
+    }
+
+    private AvailabilitySearchKey january(long campsiteId, int firstDay, int lastDay) {
+        return new AvailabilitySearchKey(campsiteId, LocalDate.of(2023, 1, firstDay), LocalDate.of(2023, 1, lastDay));
+    }
+
+    @Test
+    @DisplayName("Only searches overlapping the changed nights are evicted")
+    public void onlyOverlappingSearchesAreEvicted() {
+        cache.put(january(1, 3), List.of());
+        cache.put(january(1, 20), List.of());
+        cache.put(january(5, 6), List.of());
+        cache.put(january(8, 9), List.of());
+
+        cache.evictOverlapping(CAMPSITE, LocalDate.of(2023, 1, 6), LocalDate.of(2023, 1, 7));
+
+        assertThat(cache.get(january(1, 3))).isNotNull();
+        assertThat(cache.get(january(1, 20))).isNull();
+        assertThat(cache.get(january(5, 6))).isNull();
+        assertThat(cache.get(january(8, 9))).isNotNull();
+    }
+
+    @Test
+    @DisplayName("A search ending on the night before the changed nights is kept")
+    public void adjacentSearchesAreKept() {
+        cache.put(january(1, 5), List.of());
+        cache.put(january(7, 7), List.of());
+
+        cache.evictOverlapping(CAMPSITE, LocalDate.of(2023, 1, 6), LocalDate.of(2023, 1, 6));
+
+        assertThat(cache.get(january(1, 5))).isNotNull();
+        assertThat(cache.get(january(7, 7))).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Searches of other campsites are kept")
+    public void searchesOfOtherCampsitesAreKept() {
+        cache.put(january(1, 20), List.of());
+        cache.put(january(OTHER_CAMPSITE, 1, 20), List.of());
+
+        cache.evictOverlapping(CAMPSITE, LocalDate.of(2023, 1, 6), LocalDate.of(2023, 1, 7));
+
+        assertThat(cache.get(january(1, 20))).isNull();
+        assertThat(cache.get(january(OTHER_CAMPSITE, 1, 20))).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Keys other than date ranges are rejected")
+    public void unsupportedKeysAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> cache.put("2023-01-01", List.of()));
+    }
+
+    @Test
+    @DisplayName("Searches spanning more than the cached span aren't stored, so evictions keep scanning a bounded range")
+    public void widestSearchesAreNotCached() {
+        AvailabilitySearchKey years = new AvailabilitySearchKey(CAMPSITE, LocalDate.of(2023, 1, 1), LocalDate.of(2026, 1, 1));
+
+        cache.put(years, List.of());
+        assertThat(cache.get(years, () -> List.of(LocalDate.of(2023, 1, 1)))).containsExactly(LocalDate.of(2023, 1, 1));
+
+        assertThat(cache.get(years)).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Keys dropped by the underlying store are no longer indexed")
+    public void forgottenKeysAreNoLongerIndexed() {
+        cache.put(january(1, 3), List.of());
+        cache.put(january(2, 5), List.of());
+
+        cache.forget(january(1, 3));
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.evictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("A search stored while its key is being evicted can still be evicted afterwards")
+    public void searchStoredDuringEvictionStaysIndexed() {
+        AtomicReference<AvailabilityCache> racing = new AtomicReference<>();
+        // another thread stores the search again right after the store removed it
+        AvailabilityCache racyCache = new AvailabilityCache(new ConcurrentMapCache("availability") {
+            @Override
+            public void evict(Object key) {
+                super.evict(key);
+
+                AvailabilityCache once = racing.getAndSet(null);
+                if (once != null) {
+                    once.put(key, List.of());
+                }
+            }
+        });
+        racing.set(racyCache);
+
+        racyCache.put(january(1, 3), List.of());
+        racyCache.evictOverlapping(CAMPSITE, LocalDate.of(2023, 1, 2), LocalDate.of(2023, 1, 2));
+        assertThat(racyCache.get(january(1, 3))).isNotNull();
+
+        racyCache.evictOverlapping(CAMPSITE, LocalDate.of(2023, 1, 2), LocalDate.of(2023, 1, 2));
+        assertThat(racyCache.get(january(1, 3))).isNull();
+    }
+}
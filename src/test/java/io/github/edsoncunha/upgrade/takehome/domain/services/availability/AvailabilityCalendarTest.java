@@ -0,0 +1,60 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services.availability;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AvailabilityCalendarTest {
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 1);
+    private static final LocalDate LAST_DAY = LocalDate.of(2023, 1, 10);
+
+    // January 3rd, 4th and 10th are full
+    private final AvailabilityCalendar calendar = OccupancyIndex.of(FIRST_DAY, LAST_DAY, List.of(stay(1, 3, 5), stay(2, 10, 12)), null)
+            .availability(1);
+
+    private static Reservation stay(long id, int checkinDay, int checkoutDay) {
+        return Reservation.builder().id(id)
+                .checkin(LocalDate.of(2023, 1, checkinDay).atStartOfDay())
+                .checkout(LocalDate.of(2023, 1, checkoutDay).atStartOfDay())
+                .build();
+    }
+
+    @Test
+    @DisplayName("Consecutive available days are grouped in inclusive intervals")
+    public void availableDaysAreGroupedInRanges() {
+        assertThat(calendar.availableRanges()).containsExactly(
+                new AvailabilityCalendar.Range(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 1, 2)),
+                new AvailabilityCalendar.Range(LocalDate.of(2023, 1, 5), LocalDate.of(2023, 1, 9)));
+    }
+
+    @Test
+    @DisplayName("The bitmap has one bit per day of the window, least significant bit first")
+    public void bitmapCoversTheWholeWindow() {
+        // 1111 0011 / 0000 0001 read from the first day on
+        assertThat(calendar.toBitmap()).containsExactly(0b1111_0011, 0b0000_0001);
+    }
+
+    @Test
+    @DisplayName("Trailing unavailable days are still part of the bitmap")
+    public void bitmapKeepsTrailingUnavailableDays() {
+        AvailabilityCalendar fullAtTheEnd = OccupancyIndex.of(FIRST_DAY, LAST_DAY, List.of(stay(1, 2, 11)), null)
+                .availability(1);
+
+        assertThat(fullAtTheEnd.toBitmap()).containsExactly(0b0000_0001, 0b0000_0000);
+        assertThat(fullAtTheEnd.availableDates()).containsExactly(FIRST_DAY);
+    }
+
+    @Test
+    @DisplayName("Days outside of the window are not available")
+    public void daysOutsideOfWindowAreNotAvailable() {
+        assertThat(calendar.isAvailable(FIRST_DAY)).isTrue();
+        assertThat(calendar.isAvailable(FIRST_DAY.minusDays(1))).isFalse();
+        assertThat(calendar.isAvailable(LAST_DAY.plusDays(1))).isFalse();
+        assertThat(calendar.availableDays()).isEqualTo(7);
+    }
+}
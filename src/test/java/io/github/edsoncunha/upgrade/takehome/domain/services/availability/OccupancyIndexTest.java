@@ -0,0 +1,77 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services.availability;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OccupancyIndexTest {
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 1);
+    private static final LocalDate LAST_DAY = LocalDate.of(2023, 1, 5);
+
+    private Reservation stay(long id, int checkinDay, int checkoutDay) {
+        return Reservation.builder().id(id)
+                .checkin(LocalDate.of(2023, 1, checkinDay).atStartOfDay())
+                .checkout(LocalDate.of(2023, 1, checkoutDay).atStartOfDay())
+                .build();
+    }
+
+    @Test
+    @DisplayName("Occupancy counts a reservation from its checkin day up to the day before its checkout")
+    public void occupancyDoesNotIncludeCheckoutDay() {
+        OccupancyIndex index = OccupancyIndex.of(FIRST_DAY, LAST_DAY, List.of(stay(1, 2, 4)), null);
+
+        assertThat(index.occupancyAt(LocalDate.of(2023, 1, 1))).isEqualTo(0);
+        assertThat(index.occupancyAt(LocalDate.of(2023, 1, 2))).isEqualTo(1);
+        assertThat(index.occupancyAt(LocalDate.of(2023, 1, 3))).isEqualTo(1);
+        assertThat(index.occupancyAt(LocalDate.of(2023, 1, 4))).isEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("Stays partially outside of the window are clipped to it")
+    public void staysAreClippedToWindow() {
+        OccupancyIndex index = OccupancyIndex.of(FIRST_DAY, LAST_DAY, List.of(stay(1, 1, 3), stay(2, 4, 9)), null);
+
+        assertThat(index.days()).isEqualTo(5);
+        assertThat(index.occupancyAt(LocalDate.of(2023, 1, 1))).isEqualTo(1);
+        assertThat(index.occupancyAt(LocalDate.of(2023, 1, 5))).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Only days below capacity are available")
+    public void availableDatesRespectCapacity() {
+        OccupancyIndex index = OccupancyIndex.of(FIRST_DAY, LAST_DAY, List.of(stay(1, 1, 3), stay(2, 2, 4)), null);
+
+        assertThat(index.availability(2).availableDates()).containsExactly(
+                LocalDate.of(2023, 1, 1),
+                LocalDate.of(2023, 1, 3),
+                LocalDate.of(2023, 1, 4),
+                LocalDate.of(2023, 1, 5));
+
+        assertThat(index.isAvailable(LocalDate.of(2023, 1, 1), 2, 2)).isFalse();
+        assertThat(index.isAvailable(LocalDate.of(2023, 1, 3), 3, 2)).isTrue();
+    }
+
+    @Test
+    @DisplayName("An ignored reservation does not count towards occupancy")
+    public void ignoredReservationIsNotCounted() {
+        Reservation beingUpdated = stay(1, 2, 3);
+
+        OccupancyIndex index = OccupancyIndex.of(FIRST_DAY, LAST_DAY, List.of(beingUpdated, stay(2, 2, 3)), beingUpdated.toBuilder().build());
+
+        assertThat(index.occupancyAt(LocalDate.of(2023, 1, 2))).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("An empty window has no available dates")
+    public void emptyWindowHasNoAvailableDates() {
+        OccupancyIndex index = OccupancyIndex.of(LAST_DAY, FIRST_DAY, List.of(stay(1, 1, 9)), null);
+
+        assertThat(index.days()).isEqualTo(0);
+        assertThat(index.availability(1).availableDates()).isEmpty();
+    }
+}
@@ -0,0 +1,78 @@
+package io.github.edsoncunha.upgrade.takehome.domain.services.validation;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.InvalidRequestException;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.MaxActiveReservationsExceededException;
+import io.github.edsoncunha.upgrade.takehome.domain.services.ActiveReservationCounter;
+import io.github.edsoncunha.upgrade.takehome.etc.Clock;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MaxActiveReservationsPerGuestRuleTest {
+    private static final LocalDate TODAY = LocalDate.of(2023, 1, 1);
+
+    private MaxActiveReservationsPerGuestRule rule;
+
+    @BeforeEach
+    public void setUp() {
+        Clock clock = mock(Clock.class);
+        when(clock.now()).thenReturn(TODAY.atStartOfDay());
+
+        ActiveReservationCounter activeReservations = new ActiveReservationCounter(null, clock, 1);
+        activeReservations.add("hoarder@test.com", TODAY.plusDays(3));
+
+        rule = new MaxActiveReservationsPerGuestRule(activeReservations, clock);
+    }
+
+    @Test
+    public void guestAtTheQuotaCantReserve() {
+        Assertions.assertThrows(MaxActiveReservationsExceededException.class, () -> {
+            rule.validate("hoarder@test.com", TODAY.plusDays(5), 1);
+        });
+    }
+
+    @Test
+    public void guestAtTheQuotaCantReserveWritingTheEmailDifferently() {
+        Assertions.assertThrows(MaxActiveReservationsExceededException.class, () -> {
+            rule.validate("Hoarder@Test.com ", TODAY.plusDays(5), 1);
+        });
+    }
+
+    @Test
+    public void bookingWithoutEmailIsRefused() {
+        Assertions.assertThrows(InvalidRequestException.class, () -> {
+            rule.validate(null, TODAY.plusDays(5), 1);
+        });
+    }
+
+    @Test
+    public void guestBelowTheQuotaCanReserve() {
+        rule.validate("dummy@test.com", TODAY.plusDays(5), 1);
+    }
+
+    @Test
+    public void guestAtTheQuotaCanChangeAnActiveReservation() {
+        rule.validateUpdate(reservation(TODAY.plusDays(2), TODAY.plusDays(3)), TODAY.plusDays(5), 1);
+    }
+
+    @Test
+    public void guestAtTheQuotaCantBringBackAReservationAlreadyCheckedOut() {
+        Assertions.assertThrows(MaxActiveReservationsExceededException.class, () -> {
+            rule.validateUpdate(reservation(TODAY.minusDays(3), TODAY.minusDays(1)), TODAY.plusDays(5), 1);
+        });
+    }
+
+    private static Reservation reservation(LocalDate checkin, LocalDate checkout) {
+        return Reservation.builder()
+                .email("hoarder@test.com")
+                .checkin(checkin.atStartOfDay())
+                .checkout(checkout.atStartOfDay())
+                .build();
+    }
+}
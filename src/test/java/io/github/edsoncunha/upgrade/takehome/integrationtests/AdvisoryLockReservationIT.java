@@ -0,0 +1,57 @@
+package io.github.edsoncunha.upgrade.takehome.integrationtests;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Campsite;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// runs every scenario of ReservationIT with advisory locks enabled on top of the occupancy ledger
+@SpringBootTest(properties = "campsite.concurrencyControl=ADVISORY_LOCK")
+public class AdvisoryLockReservationIT extends ReservationIT {
+    // far from the keys of real bookings
+    private static final long FIRST_NIGHT = 0x7EL << 56;
+    private static final long SECOND_NIGHT = FIRST_NIGHT + 1;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @DisplayName("Bookings on different nights don't contend for the same advisory lock")
+    public void bookingsOnDifferentNightsSucceedConcurrently() throws InterruptedException {
+        int threads = 20;
+
+        doConcurrenctly(threads, threadName -> {
+            int night = Integer.parseInt(threadName.substring("Thread-".length()));
+            reservationService.reserve(Campsite.DEFAULT_ID, "simple@mail.com", LocalDate.now().plusDays(1 + night), 1);
+        });
+
+        assertThat(reservationRepository.count()).isEqualTo(threads);
+    }
+
+    @Test
+    @DisplayName("A booking that finds one of its nights locked keeps none of the others locked")
+    public void failedLockAttemptKeepsNoLocks() {
+        TransactionTemplate newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        newTransaction.executeWithoutResult(holder -> {
+            assertThat(jdbcTemplate.queryForObject("select pg_try_advisory_xact_lock(?)", Boolean.class, SECOND_NIGHT)).isTrue();
+
+            newTransaction.executeWithoutResult(booking -> {
+                assertThat(jdbcTemplate.queryForObject("select try_advisory_xact_locks(array[?, ?]::bigint[])", Boolean.class,
+                        FIRST_NIGHT, SECOND_NIGHT)).isFalse();
+
+                newTransaction.executeWithoutResult(other -> assertThat(
+                        jdbcTemplate.queryForObject("select pg_try_advisory_xact_lock(?)", Boolean.class, FIRST_NIGHT)).isTrue());
+            });
+        });
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.edsoncunha.upgrade.takehome.integrationtests;
+
+import io.github.edsoncunha.upgrade.takehome.api.converters.AvailabilityCalendarHttpMessageConverter;
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Campsite;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationRepository;
+import io.github.edsoncunha.upgrade.takehome.domain.services.ReservationService;
+import io.github.edsoncunha.upgrade.takehome.support.PostgresContainerExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Testcontainers
+@ExtendWith(PostgresContainerExtension.class)
+@ActiveProfiles("it")
+@DirtiesContext
+public class AvailabilityETagIT {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ReservationService reservationService;
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final LocalDate startDate = LocalDate.now().plusDays(2);
+    private final LocalDate endDate = startDate.plusDays(5);
+
+    @AfterEach
+    public void tearDown() {
+        reservationRepository.deleteAll();
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update("delete from daily_occupancy"));
+    }
+
+    @Test
+    @DisplayName("A search repeated with the tag of its response gets 304 while availability doesn't change")
+    public void unchangedAvailabilityIsNotModified() throws Exception {
+        String etag = mockMvc.perform(availability())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertThat(etag).isNotBlank();
+
+        mockMvc.perform(availability().header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+
+    @Test
+    @DisplayName("A committed booking changes the tag, so the search is answered again")
+    public void bookingChangesTheTag() throws Exception {
+        String etag = mockMvc.perform(availability())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        reservationService.reserve(Campsite.DEFAULT_ID, "simple@mail.com", startDate, 1);
+
+        String newEtag = mockMvc.perform(availability().header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertThat(newEtag).isNotEqualTo(etag);
+    }
+
+    @Test
+    @DisplayName("Every representation has its own tag")
+    public void representationsHaveTheirOwnTag() throws Exception {
+        String etag = mockMvc.perform(availability())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(availability()
+                        .accept(AvailabilityCalendarHttpMessageConverter.BITMAP_JSON_VALUE)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    private MockHttpServletRequestBuilder availability() {
+        return get("/api/reservations/availability")
+                .param("startDate", startDate.toString())
+                .param("endDate", endDate.toString())
+                .accept(MediaType.APPLICATION_JSON);
+    }
+}
@@ -0,0 +1,127 @@
+package io.github.edsoncunha.upgrade.takehome.integrationtests;
+
+import io.github.edsoncunha.upgrade.takehome.TakehomeApplication;
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Campsite;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationRepository;
+import io.github.edsoncunha.upgrade.takehome.domain.services.PostgresAvailabilityInvalidationBus;
+import io.github.edsoncunha.upgrade.takehome.domain.services.ReservationService;
+import io.github.edsoncunha.upgrade.takehome.domain.services.availability.AvailabilitySearchKey;
+import io.github.edsoncunha.upgrade.takehome.support.PostgresContainerExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.function.BooleanSupplier;
+
+import static io.github.edsoncunha.upgrade.takehome.domain.services.ReservationService.AVAILABILITY_SEARCH_CACHE_NAME;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Testcontainers
+@ExtendWith(PostgresContainerExtension.class)
+@ActiveProfiles("it")
+@DirtiesContext
+class AvailabilityInvalidationIT {
+    @Autowired
+    private ReservationService reservationService;
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // a second node of the application, sharing the database with the test context
+    private ConfigurableApplicationContext otherNode;
+
+    @BeforeEach
+    public void setUp() {
+        reservationRepository.deleteAll();
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update("delete from daily_occupancy"));
+
+        otherNode = new SpringApplicationBuilder(TakehomeApplication.class)
+                .profiles("it")
+                .properties("server.port=0")
+                .run();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        otherNode.close();
+    }
+
+    @Test
+    @DisplayName("A booking on one node evicts the overlapping searches cached by the other nodes")
+    public void bookingEvictsSearchesCachedByOtherNodes() throws InterruptedException {
+        ReservationService otherNodeService = otherNode.getBean(ReservationService.class);
+        Cache otherNodeCache = otherNode.getBean(CacheManager.class).getCache(AVAILABILITY_SEARCH_CACHE_NAME);
+
+        reservationService.setCapacity(1);
+        otherNodeService.setCapacity(1);
+
+        waitFor(otherNode.getBean(PostgresAvailabilityInvalidationBus.class)::isListening);
+
+        LocalDate arrivalDate = LocalDate.now().plusDays(2);
+        // goes beyond the bookable horizon, so it isn't answered by the availability snapshot but cached
+        LocalDate lastDay = arrivalDate.plusDays(60);
+        AvailabilitySearchKey search = new AvailabilitySearchKey(Campsite.DEFAULT_ID, arrivalDate, lastDay);
+
+        assertThat(otherNodeService.getAvailability(Campsite.DEFAULT_ID, arrivalDate, lastDay).isAvailable(arrivalDate)).isTrue();
+        assertThat(otherNodeService.getAvailability(Campsite.DEFAULT_ID, arrivalDate, arrivalDate).isAvailable(arrivalDate)).isTrue();
+        assertThat(otherNodeCache.get(search)).isNotNull();
+
+        reservationService.reserve(Campsite.DEFAULT_ID, "simple@mail.com", arrivalDate, 1);
+
+        waitFor(() -> otherNodeCache.get(search) == null);
+        assertThat(otherNodeService.getAvailability(Campsite.DEFAULT_ID, arrivalDate, lastDay).isAvailable(arrivalDate)).isFalse();
+
+        // the other node's snapshot is rebuilt as well
+        waitFor(() -> !otherNodeService.getAvailability(Campsite.DEFAULT_ID, arrivalDate, arrivalDate).isAvailable(arrivalDate));
+    }
+
+    @Test
+    @DisplayName("Nothing is evicted on other nodes when a booking is rolled back")
+    public void rolledBackBookingEvictsNothing() throws InterruptedException {
+        ReservationService otherNodeService = otherNode.getBean(ReservationService.class);
+        Cache otherNodeCache = otherNode.getBean(CacheManager.class).getCache(AVAILABILITY_SEARCH_CACHE_NAME);
+
+        waitFor(otherNode.getBean(PostgresAvailabilityInvalidationBus.class)::isListening);
+
+        LocalDate arrivalDate = LocalDate.now().plusDays(2);
+        LocalDate lastDay = arrivalDate.plusDays(60);
+        AvailabilitySearchKey search = new AvailabilitySearchKey(Campsite.DEFAULT_ID, arrivalDate, lastDay);
+        otherNodeService.getAvailability(Campsite.DEFAULT_ID, arrivalDate, lastDay);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            reservationService.reserve(Campsite.DEFAULT_ID, "simple@mail.com", arrivalDate, 1);
+            status.setRollbackOnly();
+        });
+
+        Thread.sleep(1000);
+        assertThat(otherNodeCache.get(search)).isNotNull();
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("waited too long for the other node").isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+}
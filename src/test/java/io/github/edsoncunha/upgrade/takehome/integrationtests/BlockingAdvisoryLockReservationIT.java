@@ -0,0 +1,56 @@
+package io.github.edsoncunha.upgrade.takehome.integrationtests;
+
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.LockNotAcquiredException;
+import io.github.edsoncunha.upgrade.takehome.domain.services.LockManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// runs every advisory lock scenario with the lock manager blocking on pg_advisory_xact_lock, as in virtual threads mode
+@SpringBootTest(properties = {"campsite.concurrencyControl=ADVISORY_LOCK", "campsite.virtualThreads=true"})
+public class BlockingAdvisoryLockReservationIT extends AdvisoryLockReservationIT {
+    private static final long LOCK_ID = 42;
+
+    @Autowired
+    private LockManager lockManager;
+
+    @Test
+    @DisplayName("Waiting for a lock held by another transaction gives up after the timeout")
+    public void lockWaitIsBoundedByTimeout() throws InterruptedException {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread holder = new Thread(() -> transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.query("select pg_advisory_xact_lock(?)", resultSet -> {
+            }, LOCK_ID);
+            locked.countDown();
+
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+
+        holder.start();
+        locked.await();
+
+        try {
+            assertThrows(LockNotAcquiredException.class, () -> lockManager.lock(List.of(LOCK_ID), Duration.ofMillis(200), () -> true));
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+
+        // once released, the same lock is taken right away
+        assertThat(lockManager.lock(List.of(LOCK_ID), Duration.ofMillis(200), () -> true)).isTrue();
+    }
+}
@@ -0,0 +1,116 @@
+package io.github.edsoncunha.upgrade.takehome.integrationtests;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Campsite;
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.CampsiteNotFoundException;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.NoPlacesAvailableException;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.ReservationNotFoundException;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.CampsiteRepository;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationRepository;
+import io.github.edsoncunha.upgrade.takehome.domain.services.ReservationService;
+import io.github.edsoncunha.upgrade.takehome.support.PostgresContainerExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@Testcontainers
+@ExtendWith(PostgresContainerExtension.class)
+@ActiveProfiles("it")
+@DirtiesContext
+public class CampsiteReservationIT {
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private CampsiteRepository campsiteRepository;
+    @Autowired
+    private ReservationService reservationService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private long lakeside;
+    private long hillside;
+
+    @BeforeEach
+    public void setUp() {
+        deleteAll();
+
+        lakeside = campsiteRepository.save(Campsite.builder().name("Lakeside").capacity(1).build()).getId();
+        hillside = campsiteRepository.save(Campsite.builder().name("Hillside").capacity(1).build()).getId();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        deleteAll();
+    }
+
+    private void deleteAll() {
+        reservationRepository.deleteAll();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("delete from daily_occupancy");
+            jdbcTemplate.update("delete from campsite where id <> ?", Campsite.DEFAULT_ID);
+        });
+    }
+
+    @Test
+    @DisplayName("Every campsite has its own places")
+    public void campsitesAreBookedIndependently() {
+        LocalDate arrivalDate = LocalDate.now().plusDays(2);
+
+        Reservation atLakeside = reservationService.reserve(lakeside, "lake@mail.com", arrivalDate, 2);
+        Reservation atHillside = reservationService.reserve(hillside, "hill@mail.com", arrivalDate, 2);
+
+        assertThat(atLakeside.getCampsiteId()).isEqualTo(lakeside);
+        assertThat(atHillside.getCampsiteId()).isEqualTo(hillside);
+
+        assertThrows(NoPlacesAvailableException.class, () -> reservationService.reserve(lakeside, "other@mail.com", arrivalDate.plusDays(1), 1));
+    }
+
+    @Test
+    @DisplayName("Availability only counts the reservations of the campsite searched")
+    public void availabilityIsSearchedPerCampsite() {
+        LocalDate arrivalDate = LocalDate.now().plusDays(2);
+        // beyond the bookable horizon, so the search isn't answered from a snapshot
+        LocalDate lastDay = arrivalDate.plusDays(60);
+
+        reservationService.reserve(lakeside, "lake@mail.com", arrivalDate, 1);
+
+        assertThat(reservationService.getAvailability(lakeside, arrivalDate, arrivalDate).isAvailable(arrivalDate)).isFalse();
+        assertThat(reservationService.getAvailability(lakeside, arrivalDate, lastDay).isAvailable(arrivalDate)).isFalse();
+        assertThat(reservationService.getAvailability(hillside, arrivalDate, arrivalDate).isAvailable(arrivalDate)).isTrue();
+        assertThat(reservationService.getAvailability(hillside, arrivalDate, lastDay).isAvailable(arrivalDate)).isTrue();
+    }
+
+    @Test
+    @DisplayName("A reservation can't be changed through another campsite")
+    public void reservationsAreOnlyFoundAtTheirCampsite() {
+        Reservation reservation = reservationService.reserve(lakeside, "lake@mail.com", LocalDate.now().plusDays(2), 1);
+
+        assertThrows(ReservationNotFoundException.class, () -> reservationService.cancelReservation(hillside, reservation.getId()));
+        assertThrows(ReservationNotFoundException.class, () -> reservationService.updateReservation(hillside, reservation.getId(), LocalDate.now().plusDays(3), 1));
+
+        assertThat(reservationRepository.findById(reservation.getId()).orElseThrow().getCanceled()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Bookings at a campsite that doesn't exist are refused")
+    public void unknownCampsiteIsNotFound() {
+        assertThrows(CampsiteNotFoundException.class, () -> reservationService.reserve(hillside + 1000, "simple@mail.com", LocalDate.now().plusDays(2), 1));
+    }
+}
@@ -0,0 +1,112 @@
+package io.github.edsoncunha.upgrade.takehome.integrationtests;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Campsite;
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.MaxActiveReservationsExceededException;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.NoPlacesAvailableException;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationRepository;
+import io.github.edsoncunha.upgrade.takehome.domain.services.ActiveReservationCounter;
+import io.github.edsoncunha.upgrade.takehome.domain.services.ReservationService;
+import io.github.edsoncunha.upgrade.takehome.support.PostgresContainerExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = "campsite.guestQuota.maxActiveReservations=2")
+@Testcontainers
+@ExtendWith(PostgresContainerExtension.class)
+@ActiveProfiles("it")
+@DirtiesContext
+public class GuestQuotaIT {
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private ReservationService reservationService;
+    @Autowired
+    private ActiveReservationCounter activeReservations;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        deleteAll();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        deleteAll();
+    }
+
+    private void deleteAll() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("delete from reservation");
+            jdbcTemplate.update("delete from daily_occupancy");
+        });
+        activeReservations.reconcile();
+    }
+
+    @Test
+    @DisplayName("A guest can't hold more active reservations than the quota, until one is canceled")
+    public void guestQuotaIsEnforced() {
+        LocalDate arrivalDate = LocalDate.now().plusDays(2);
+
+        reservationService.reserve(Campsite.DEFAULT_ID, "hoarder@mail.com", arrivalDate, 1);
+        Reservation second = reservationService.reserve(Campsite.DEFAULT_ID, "hoarder@mail.com", arrivalDate.plusDays(2), 1);
+
+        assertThrows(MaxActiveReservationsExceededException.class,
+                () -> reservationService.reserve(Campsite.DEFAULT_ID, "hoarder@mail.com", arrivalDate.plusDays(4), 1));
+        reservationService.reserve(Campsite.DEFAULT_ID, "other@mail.com", arrivalDate.plusDays(4), 1);
+
+        reservationService.cancelReservation(Campsite.DEFAULT_ID, second.getId());
+
+        reservationService.reserve(Campsite.DEFAULT_ID, "hoarder@mail.com", arrivalDate.plusDays(4), 1);
+    }
+
+    @Test
+    @DisplayName("A booking refused for lack of places doesn't count against the quota")
+    public void refusedBookingsDontCount() {
+        LocalDate arrivalDate = LocalDate.now().plusDays(2);
+        reservationService.setCapacity(1);
+
+        try {
+            reservationService.reserve(Campsite.DEFAULT_ID, "other@mail.com", arrivalDate, 1);
+            assertThrows(NoPlacesAvailableException.class, () -> reservationService.reserve(Campsite.DEFAULT_ID, "hoarder@mail.com", arrivalDate, 1));
+
+            assertThat(activeReservations.activeReservations("hoarder@mail.com")).isZero();
+        } finally {
+            reservationService.setCapacity(30);
+        }
+    }
+
+    @Test
+    @DisplayName("Counts are reconciled with the reservations in the database")
+    public void countsAreReconciled() {
+        LocalDate arrivalDate = LocalDate.now().plusDays(2);
+
+        reservationService.reserve(Campsite.DEFAULT_ID, "hoarder@mail.com", arrivalDate, 1);
+        reservationService.reserve(Campsite.DEFAULT_ID, "hoarder@mail.com", arrivalDate.plusDays(2), 1);
+
+        // as if the reservations had been canceled through another node
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update("update reservation set canceled = true"));
+        activeReservations.reconcile();
+
+        assertThat(activeReservations.activeReservations("hoarder@mail.com")).isZero();
+        assertThat(reservationRepository.count()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.edsoncunha.upgrade.takehome.integrationtests;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Campsite;
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.NoPlacesAvailableException;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationRepository;
+import io.github.edsoncunha.upgrade.takehome.domain.services.IdempotentReservationService;
+import io.github.edsoncunha.upgrade.takehome.domain.services.ReservationService;
+import io.github.edsoncunha.upgrade.takehome.support.PostgresContainerExtension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@Testcontainers
+@ExtendWith(PostgresContainerExtension.class)
+@ActiveProfiles("it")
+@DirtiesContext
+class IdempotentReservationIT {
+    @Autowired
+    private IdempotentReservationService idempotentReservationService;
+    @Autowired
+    private ReservationService reservationService;
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("delete from idempotency_key");
+            jdbcTemplate.update("delete from reservation");
+            jdbcTemplate.update("delete from daily_occupancy");
+        });
+    }
+
+    @Test
+    @DisplayName("Keys older than rememberFor are purged from the table")
+    public void expiredKeysArePurged() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("insert into idempotency_key (key, fingerprint, created_at) values ('old-key', 'f', localtimestamp - interval '25 hours')");
+            jdbcTemplate.update("insert into idempotency_key (key, fingerprint) values ('recent-key', 'f')");
+        });
+
+        idempotentReservationService.purgeExpiredKeys();
+
+        assertThat(jdbcTemplate.queryForList("select key from idempotency_key", String.class)).containsExactly("recent-key");
+    }
+
+    @Test
+    @DisplayName("Concurrent requests with the same key book a single stay")
+    public void concurrentDuplicatesBookOnce() throws Exception {
+        reservationService.setCapacity(30);
+        LocalDate arrivalDate = LocalDate.now().plusDays(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        List<Callable<Reservation>> duplicates = IntStream.range(0, 10)
+                .<Callable<Reservation>>mapToObj(i -> () -> idempotentReservationService.reserve("retried-key", Campsite.DEFAULT_ID, "simple@mail.com", arrivalDate, 1))
+                .toList();
+
+        Set<Long> reservationIds = executor.invokeAll(duplicates).stream()
+                .map(IdempotentReservationIT::result)
+                .map(Reservation::getId)
+                .collect(Collectors.toSet());
+        executor.shutdown();
+
+        assertThat(reservationIds).hasSize(1);
+        assertThat(reservationRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("A request that failed can be retried with the same key")
+    public void failedRequestCanBeRetried() {
+        reservationService.setCapacity(1);
+        LocalDate arrivalDate = LocalDate.now().plusDays(1);
+
+        Reservation blocking = reservationService.reserve(Campsite.DEFAULT_ID, "other@mail.com", arrivalDate, 1);
+
+        assertThrows(NoPlacesAvailableException.class, () -> idempotentReservationService.reserve("retried-key", Campsite.DEFAULT_ID, "simple@mail.com", arrivalDate, 1));
+
+        reservationService.cancelReservation(Campsite.DEFAULT_ID, blocking.getId());
+
+        Reservation retried = idempotentReservationService.reserve("retried-key", Campsite.DEFAULT_ID, "simple@mail.com", arrivalDate, 1);
+        assertThat(retried.getEmail()).isEqualTo("simple@mail.com");
+    }
+
+    private static Reservation result(Future<Reservation> future) {
+        try {
+            return future.get();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
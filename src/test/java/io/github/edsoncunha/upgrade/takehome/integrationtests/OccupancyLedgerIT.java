@@ -0,0 +1,82 @@
+package io.github.edsoncunha.upgrade.takehome.integrationtests;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Campsite;
+import io.github.edsoncunha.upgrade.takehome.domain.services.OccupancyLedger;
+import io.github.edsoncunha.upgrade.takehome.support.PostgresContainerExtension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@Testcontainers
+@ExtendWith(PostgresContainerExtension.class)
+@ActiveProfiles("it")
+@DirtiesContext
+@Transactional
+class OccupancyLedgerIT {
+    private static final LocalDate CHECKIN = LocalDate.of(2001, 1, 1);
+
+    @Autowired
+    private OccupancyLedger occupancyLedger;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        jdbcTemplate.update("delete from daily_occupancy");
+    }
+
+    private int bookedAt(LocalDate day) {
+        return jdbcTemplate.queryForObject("select booked from daily_occupancy where day = ?", Integer.class, day);
+    }
+
+    @Test
+    @DisplayName("Claiming nights books one place on each of them")
+    public void claimBooksEveryNight() {
+        assertThat(occupancyLedger.claim(Campsite.DEFAULT_ID, CHECKIN, CHECKIN.plusDays(2), 1)).isTrue();
+
+        assertThat(bookedAt(CHECKIN)).isEqualTo(1);
+        assertThat(bookedAt(CHECKIN.plusDays(1))).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from daily_occupancy where booked > 0", Integer.class)).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("A claim is refused if any of its nights is at capacity")
+    public void claimIsRefusedWhenSomeNightIsFull() {
+        occupancyLedger.claim(Campsite.DEFAULT_ID, CHECKIN.plusDays(1), CHECKIN.plusDays(2), 1);
+
+        assertThat(occupancyLedger.claim(Campsite.DEFAULT_ID, CHECKIN, CHECKIN.plusDays(3), 1)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Released nights can be claimed again")
+    public void releasedNightsCanBeClaimedAgain() {
+        occupancyLedger.claim(Campsite.DEFAULT_ID, CHECKIN, CHECKIN.plusDays(1), 1);
+        occupancyLedger.release(Campsite.DEFAULT_ID, CHECKIN, CHECKIN.plusDays(1));
+
+        assertThat(occupancyLedger.claim(Campsite.DEFAULT_ID, CHECKIN, CHECKIN.plusDays(1), 1)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Nights can't be released more often than they were claimed")
+    public void nightsCantBeReleasedTwice() {
+        occupancyLedger.claim(Campsite.DEFAULT_ID, CHECKIN, CHECKIN.plusDays(1), 1);
+        occupancyLedger.release(Campsite.DEFAULT_ID, CHECKIN, CHECKIN.plusDays(1));
+
+        assertThrows(DataIntegrityViolationException.class, () -> occupancyLedger.release(Campsite.DEFAULT_ID, CHECKIN, CHECKIN.plusDays(1)));
+    }
+}
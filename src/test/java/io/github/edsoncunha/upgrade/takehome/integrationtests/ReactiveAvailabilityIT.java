@@ -0,0 +1,137 @@
+package io.github.edsoncunha.upgrade.takehome.integrationtests;
+
+import io.github.edsoncunha.upgrade.takehome.api.converters.AvailabilityCalendarHttpMessageConverter;
+import io.github.edsoncunha.upgrade.takehome.configuration.ReactiveAvailabilityServer;
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Campsite;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationRepository;
+import io.github.edsoncunha.upgrade.takehome.domain.services.ReservationService;
+import io.github.edsoncunha.upgrade.takehome.support.PostgresContainerExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "campsite.reactiveAvailability.enabled=true",
+        "campsite.reactiveAvailability.port=0"})
+@Testcontainers
+@ExtendWith(PostgresContainerExtension.class)
+@ActiveProfiles("it")
+@DirtiesContext
+public class ReactiveAvailabilityIT {
+    @LocalServerPort
+    private int servletPort;
+    @Autowired
+    private ReactiveAvailabilityServer reactiveServer;
+    @Autowired
+    private ReservationService reservationService;
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final LocalDate arrivalDate = LocalDate.now().plusDays(2);
+    // beyond the bookable horizon, so the servlet path doesn't answer from a snapshot either
+    private final LocalDate lastDay = arrivalDate.plusDays(60);
+
+    @AfterEach
+    public void tearDown() {
+        reservationRepository.deleteAll();
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update("delete from daily_occupancy"));
+    }
+
+    @Test
+    @DisplayName("Both paths answer a search with the same availability, in every representation")
+    public void reactivePathAnswersLikeServletPath() {
+        reservationService.setCapacity(1);
+        reservationService.reserve(Campsite.DEFAULT_ID, "simple@mail.com", arrivalDate, 3);
+
+        for (String representation : new String[]{MediaType.APPLICATION_JSON_VALUE,
+                AvailabilityCalendarHttpMessageConverter.RANGES_JSON_VALUE,
+                AvailabilityCalendarHttpMessageConverter.BITMAP_JSON_VALUE}) {
+            String fromServlet = search(client(servletPort), representation);
+            String fromReactive = search(client(reactiveServer.port()), representation);
+
+            assertThat(fromReactive).isEqualTo(fromServlet);
+        }
+
+        assertThat(search(client(reactiveServer.port()), MediaType.APPLICATION_JSON_VALUE))
+                .doesNotContain(arrivalDate.toString(), arrivalDate.plusDays(2).toString())
+                .contains(arrivalDate.plusDays(3).toString());
+    }
+
+    @Test
+    @DisplayName("A reactive search repeated with the tag of its response gets 304 while availability doesn't change")
+    public void repeatedReactiveSearchIsNotModified() {
+        WebTestClient reactive = client(reactiveServer.port());
+
+        String etag = reactive.get().uri(availabilityUri())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .returnResult(String.class)
+                .getResponseHeaders().getETag();
+
+        reactive.get().uri(availabilityUri())
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        reservationService.reserve(Campsite.DEFAULT_ID, "simple@mail.com", arrivalDate, 1);
+
+        reactive.get().uri(availabilityUri())
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    @DisplayName("Reactive searches at a campsite that doesn't exist get 404, and incomplete ones 400")
+    public void invalidReactiveSearchesAreRefused() {
+        WebTestClient reactive = client(reactiveServer.port());
+
+        reactive.get().uri("/api/campsites/1000/reservations/availability?startDate={start}&endDate={end}", arrivalDate, lastDay)
+                .exchange()
+                .expectStatus().isNotFound();
+
+        reactive.get().uri("/api/reservations/availability?startDate={start}", arrivalDate)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private String search(WebTestClient client, String representation) {
+        return client.get().uri(availabilityUri())
+                .accept(MediaType.parseMediaType(representation))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(representation)
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private String availabilityUri() {
+        return "/api/reservations/availability?startDate=" + arrivalDate + "&endDate=" + lastDay;
+    }
+
+    private static WebTestClient client(int port) {
+        return WebTestClient.bindToServer().baseUrl("http://localhost:" + port).build();
+    }
+}
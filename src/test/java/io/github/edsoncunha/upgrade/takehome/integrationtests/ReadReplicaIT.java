@@ -0,0 +1,174 @@
+package io.github.edsoncunha.upgrade.takehome.integrationtests;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Campsite;
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationRepository;
+import io.github.edsoncunha.upgrade.takehome.domain.services.AvailabilitySnapshots;
+import io.github.edsoncunha.upgrade.takehome.domain.services.ReservationService;
+import io.github.edsoncunha.upgrade.takehome.support.PostgresContainerExtension;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doReturn;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The replica is a second, independent Postgres instance standing in for a streaming replica. Since nothing is
+ * replicated to it, whatever a query returns shows which database it read.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Testcontainers
+@ExtendWith(PostgresContainerExtension.class)
+@ActiveProfiles("it")
+@DirtiesContext
+class ReadReplicaIT {
+    private static final PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:12.5-alpine")
+            .withUsername("test-user")
+            .withPassword("test-pwd")
+            .withDatabaseName("campsite-demo");
+
+    private static JdbcTemplate replicaJdbcTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ReservationService reservationService;
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @SpyBean
+    private AvailabilitySnapshots availabilitySnapshots;
+
+    @BeforeAll
+    public static void startReplica() {
+        replica.start();
+
+        Flyway.configure()
+                .dataSource(replica.getJdbcUrl(), replica.getUsername(), replica.getPassword())
+                .placeholders(Map.of("campsiteCapacity", "30"))
+                .load()
+                .migrate();
+
+        replicaJdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(replica.getJdbcUrl(), replica.getUsername(), replica.getPassword()));
+    }
+
+    @AfterAll
+    public static void stopReplica() {
+        replica.stop();
+    }
+
+    @DynamicPropertySource
+    static void replicaProperties(DynamicPropertyRegistry registry) {
+        registry.add("campsite.readReplica.url", replica::getJdbcUrl);
+        registry.add("campsite.readReplica.username", replica::getUsername);
+        registry.add("campsite.readReplica.password", replica::getPassword);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        reservationRepository.deleteAll();
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update("delete from daily_occupancy"));
+        replicaJdbcTemplate.update("delete from reservation");
+
+        reservationService.setCapacity(1);
+    }
+
+    @Test
+    @DisplayName("Availability searches read the replica")
+    public void searchesReadReplica() {
+        LocalDate arrivalDate = LocalDate.now().plusDays(2);
+        bookOnReplicaOnly(arrivalDate);
+
+        // goes beyond the bookable horizon, so it isn't answered by the in-memory snapshot
+        LocalDate lastDay = arrivalDate.plusDays(60);
+
+        assertThat(reservationService.getAvailability(Campsite.DEFAULT_ID, arrivalDate, lastDay).isAvailable(arrivalDate)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Bookings read the primary")
+    public void bookingsReadPrimary() {
+        LocalDate arrivalDate = LocalDate.now().plusDays(2);
+        bookOnReplicaOnly(arrivalDate);
+
+        Reservation reservation = reservationService.reserve(Campsite.DEFAULT_ID, "simple@mail.com", arrivalDate, 1);
+
+        assertThat(reservationRepository.findById(reservation.getId())).isPresent();
+        assertThat(replicaJdbcTemplate.queryForObject("select count(*) from reservation where email = 'simple@mail.com'", Long.class)).isZero();
+    }
+
+    @Test
+    @DisplayName("The availability snapshot is built from the primary")
+    public void snapshotReadsPrimary() {
+        LocalDate arrivalDate = LocalDate.now().plusDays(2);
+        bookOnReplicaOnly(arrivalDate);
+
+        reservationService.reserve(Campsite.DEFAULT_ID, "simple@mail.com", arrivalDate.plusDays(1), 1);
+
+        assertThat(reservationService.getAvailability(Campsite.DEFAULT_ID, arrivalDate, arrivalDate.plusDays(1)).availableDates()).containsExactly(arrivalDate);
+    }
+
+    @Test
+    @DisplayName("Searches read from the replica carry no ETag, those answered by the snapshot do")
+    public void replicaSearchesAreNotTagged() throws Exception {
+        LocalDate arrivalDate = LocalDate.now().plusDays(2);
+
+        mockMvc.perform(get("/api/reservations/availability?startDate={start}&endDate={end}", arrivalDate, arrivalDate.plusDays(60)))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+
+        mockMvc.perform(get("/api/reservations/availability?startDate={start}&endDate={end}", arrivalDate, arrivalDate.plusDays(5)))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG));
+    }
+
+    @Test
+    @DisplayName("A search inside the horizon falls back to the replica, untagged, when the snapshot can't be built")
+    public void fallbackToReplicaIsNotTagged() throws Exception {
+        LocalDate arrivalDate = LocalDate.now().plusDays(2);
+        doReturn(null).when(availabilitySnapshots).availability(anyLong(), any(), any(), anyInt());
+
+        mockMvc.perform(get("/api/reservations/availability?startDate={start}&endDate={end}", arrivalDate, arrivalDate.plusDays(5)))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    private void bookOnReplicaOnly(LocalDate arrivalDate) {
+        replicaJdbcTemplate.update("insert into reservation (campsite_id, email, checkin, checkout) values (?, ?, ?, ?)",
+                Campsite.DEFAULT_ID, "replica@mail.com", Timestamp.valueOf(arrivalDate.atStartOfDay()), Timestamp.valueOf(arrivalDate.plusDays(1).atStartOfDay()));
+    }
+}
@@ -1,8 +1,11 @@
 package io.github.edsoncunha.upgrade.takehome.integrationtests;
 
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Campsite;
 import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
 import io.github.edsoncunha.upgrade.takehome.domain.exceptions.NoPlacesAvailableException;
 import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationRepository;
+import io.github.edsoncunha.upgrade.takehome.domain.services.ReservationCommand;
+import io.github.edsoncunha.upgrade.takehome.domain.services.ReservationOutcome;
 import io.github.edsoncunha.upgrade.takehome.domain.services.ReservationService;
 import io.github.edsoncunha.upgrade.takehome.support.PostgresContainerExtension;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,13 +14,17 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -30,19 +37,24 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 @DirtiesContext
 public class ReservationIT {
     @Autowired
-    private ReservationRepository reservationRepository;
+    protected ReservationRepository reservationRepository;
     @Autowired
-    private ReservationService reservationService;
+    protected ReservationService reservationService;
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+    @Autowired
+    protected TransactionTemplate transactionTemplate;
 
     @BeforeEach
     public void setUp() {
         reservationRepository.deleteAll();
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update("delete from daily_occupancy"));
     }
 
     @Test
     @DisplayName("A single reservation should take place gracefully")
     public void singleReservationScenario() {
-        Reservation reserved = reservationService.reserve("simple@mail.com", LocalDate.now().plusDays(1), 1);
+        Reservation reserved = reservationService.reserve(Campsite.DEFAULT_ID, "simple@mail.com", LocalDate.now().plusDays(1), 1);
 
         Optional<Reservation> fromDatabase = reservationRepository.findById(reserved.getId());
 
@@ -57,7 +69,7 @@ public class ReservationIT {
 
         int threads = 200;
 
-        doConcurrenctly(threads, s -> reservationService.reserve("simple@mail.com", LocalDate.now().plusDays(1), 1));
+        doConcurrenctly(threads, s -> reservationService.reserve(Campsite.DEFAULT_ID, "simple@mail.com", LocalDate.now().plusDays(1), 1));
 
         assertThat(reservationRepository.count()).isEqualTo(1);
     }
@@ -66,10 +78,10 @@ public class ReservationIT {
     public void reservationsRespectLimitsOfCampsite() {
         reservationService.setCapacity(1);
 
-        reservationService.reserve("simple@mail.com", LocalDate.now().plusDays(3), 1);
+        reservationService.reserve(Campsite.DEFAULT_ID, "simple@mail.com", LocalDate.now().plusDays(3), 1);
 
         assertThrows(NoPlacesAvailableException.class, () -> {
-            reservationService.reserve("simple@mail.com", LocalDate.now().plusDays(3), 1);
+            reservationService.reserve(Campsite.DEFAULT_ID, "simple@mail.com", LocalDate.now().plusDays(3), 1);
         });
     }
 
@@ -80,11 +92,11 @@ public class ReservationIT {
         LocalDate arrivalDate = LocalDate.now().plusDays(3);
         int lengthOfStay = 1;
 
-        Reservation reservation = reservationService.reserve("simple@mail.com", arrivalDate, lengthOfStay);
+        Reservation reservation = reservationService.reserve(Campsite.DEFAULT_ID, "simple@mail.com", arrivalDate, lengthOfStay);
 
         LocalDate newArrivalDate = arrivalDate.plusDays(1);
 
-        Reservation updated = reservationService.updateReservation(reservation.getId(), newArrivalDate, lengthOfStay);
+        Reservation updated = reservationService.updateReservation(Campsite.DEFAULT_ID, reservation.getId(), newArrivalDate, lengthOfStay);
 
         assertThat(updated.getId()).isEqualTo(reservation.getId());
         assertThat(updated.getCheckin().toLocalDate().toEpochDay()).isEqualTo(newArrivalDate.toEpochDay());
@@ -98,17 +110,101 @@ public class ReservationIT {
         LocalDate arrivalDate = LocalDate.now().plusDays(3);
         int lengthOfStay = 1;
 
-        Reservation reservation = reservationService.reserve("simple@mail.com", arrivalDate, lengthOfStay);
+        Reservation reservation = reservationService.reserve(Campsite.DEFAULT_ID, "simple@mail.com", arrivalDate, lengthOfStay);
 
         int newLengthOfStay = 3;
 
-        Reservation updated = reservationService.updateReservation(reservation.getId(), arrivalDate, newLengthOfStay);
+        Reservation updated = reservationService.updateReservation(Campsite.DEFAULT_ID, reservation.getId(), arrivalDate, newLengthOfStay);
 
         assertThat(updated.getId()).isEqualTo(reservation.getId());
         assertThat(updated.getCheckin().toLocalDate().toEpochDay()).isEqualTo(arrivalDate.toEpochDay());
         assertThat(updated.getCheckout().toLocalDate().toEpochDay()).isEqualTo(arrivalDate.plusDays(newLengthOfStay).toEpochDay());
     }
 
+    @Test
+    public void canceledReservationGivesItsPlaceBack() {
+        reservationService.setCapacity(1);
+
+        LocalDate arrivalDate = LocalDate.now().plusDays(3);
+
+        Reservation reservation = reservationService.reserve(Campsite.DEFAULT_ID, "simple@mail.com", arrivalDate, 2);
+        reservationService.cancelReservation(Campsite.DEFAULT_ID, reservation.getId());
+
+        Reservation replacement = reservationService.reserve(Campsite.DEFAULT_ID, "other@mail.com", arrivalDate.plusDays(1), 1);
+
+        assertThat(replacement.getId()).isNotEqualTo(reservation.getId());
+    }
+
+    @Test
+    @DisplayName("Concurrent cancellations of a reservation give its nights back only once")
+    public void concurrentCancellationsReleaseOnce() throws InterruptedException {
+        reservationService.setCapacity(2);
+
+        LocalDate arrivalDate = LocalDate.now().plusDays(3);
+
+        Reservation reservation = reservationService.reserve(Campsite.DEFAULT_ID, "simple@mail.com", arrivalDate, 2);
+        reservationService.reserve(Campsite.DEFAULT_ID, "other@mail.com", arrivalDate, 2);
+
+        doConcurrenctly(20, s -> reservationService.cancelReservation(Campsite.DEFAULT_ID, reservation.getId()));
+
+        assertThat(jdbcTemplate.queryForList("select booked from daily_occupancy where campsite_id = ? and day >= ? and day < ?",
+                Integer.class, Campsite.DEFAULT_ID, arrivalDate, arrivalDate.plusDays(2))).containsExactly(1, 1);
+    }
+
+    @Test
+    @DisplayName("Updates swapping the dates of two reservations don't deadlock")
+    public void updatesSwappingDatesDontDeadlock() throws InterruptedException {
+        reservationService.setCapacity(2);
+
+        LocalDate early = LocalDate.now().plusDays(3);
+        LocalDate late = early.plusDays(5);
+
+        Reservation first = reservationService.reserve(Campsite.DEFAULT_ID, "first@mail.com", early, 3);
+        Reservation second = reservationService.reserve(Campsite.DEFAULT_ID, "second@mail.com", late, 3);
+        AtomicInteger failures = new AtomicInteger();
+
+        for (int round = 0; round < 10; round++) {
+            LocalDate firstArrival = round % 2 == 0 ? late : early;
+            LocalDate secondArrival = round % 2 == 0 ? early : late;
+
+            doConcurrenctly(2, thread -> {
+                try {
+                    if (thread.equals("Thread-0")) {
+                        reservationService.updateReservation(Campsite.DEFAULT_ID, first.getId(), firstArrival, 3);
+                    } else {
+                        reservationService.updateReservation(Campsite.DEFAULT_ID, second.getId(), secondArrival, 3);
+                    }
+                } catch (RuntimeException e) {
+                    failures.incrementAndGet();
+                    throw e;
+                }
+            });
+        }
+
+        assertThat(failures).hasValue(0);
+    }
+
+    @Test
+    public void batchReservationBooksUntilCampsiteIsFull() {
+        reservationService.setCapacity(2);
+
+        LocalDate arrivalDate = LocalDate.now().plusDays(3);
+
+        List<ReservationOutcome> outcomes = reservationService.reserveAll(Campsite.DEFAULT_ID, List.of(
+                new ReservationCommand("first@mail.com", arrivalDate, 2),
+                new ReservationCommand("second@mail.com", arrivalDate.plusDays(1), 1),
+                new ReservationCommand("third@mail.com", arrivalDate, 1)
+        ));
+
+        assertThat(outcomes).extracting(ReservationOutcome::isCreated).containsExactly(true, true, false);
+        assertThat(reservationRepository.findById(outcomes.get(1).reservation().getId())).isPresent();
+
+        // the ledger was updated by the batch as well
+        assertThrows(NoPlacesAvailableException.class, () -> {
+            reservationService.reserve(Campsite.DEFAULT_ID, "fourth@mail.com", arrivalDate.plusDays(1), 1);
+        });
+    }
+
     protected void doConcurrenctly(int threads, Consumer<String> operation) throws InterruptedException {
         CountDownLatch startLatch = new CountDownLatch(1);
         CountDownLatch endLatch = new CountDownLatch(threads);
@@ -0,0 +1,126 @@
+package io.github.edsoncunha.upgrade.takehome.integrationtests;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Campsite;
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationRepository;
+import io.github.edsoncunha.upgrade.takehome.domain.services.ReservationPartitionMaintenance;
+import io.github.edsoncunha.upgrade.takehome.support.PostgresContainerExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Testcontainers
+@ExtendWith(PostgresContainerExtension.class)
+@ActiveProfiles("it")
+@DirtiesContext
+public class ReservationPartitionsIT {
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private ReservationPartitionMaintenance partitionMaintenance;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    public void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update("delete from reservation"));
+    }
+
+    @Test
+    @DisplayName("Partitions are created ahead of the bookings that need them")
+    public void partitionsAreCreatedAhead() {
+        partitionMaintenance.maintain();
+
+        YearMonth currentMonth = YearMonth.now();
+
+        assertThat(partitionsOf("public")).contains(partitionName(currentMonth), partitionName(currentMonth.plusMonths(3)));
+    }
+
+    @Test
+    @DisplayName("Partitions of old months are moved to the archive, with their reservations")
+    public void oldPartitionsAreArchived() {
+        LocalDate longAgo = YearMonth.now().minusMonths(30).atDay(10);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.queryForList("select ensure_reservation_partition(?::date)", longAgo.withDayOfMonth(1).toString());
+            jdbcTemplate.update("insert into reservation (campsite_id, email, checkin, checkout) values (?, ?, ?, ?)",
+                    Campsite.DEFAULT_ID, "past@mail.com",
+                    Timestamp.valueOf(longAgo.atTime(12, 0)), Timestamp.valueOf(longAgo.plusDays(2).atTime(12, 0)));
+        });
+
+        partitionMaintenance.maintain();
+
+        String partition = partitionName(YearMonth.from(longAgo));
+
+        assertThat(partitionsOf("public")).doesNotContain(partition);
+        assertThat(partitionsOf("reservation_archive")).contains(partition);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from reservation where email = 'past@mail.com'", Long.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("select count(*) from reservation_archive." + partition, Long.class)).isOne();
+    }
+
+    @Test
+    @DisplayName("Check-ins that landed in the default partition are moved to the partition of their month")
+    public void checkinsInDefaultPartitionAreMoved() {
+        // a month further than the partitions created ahead, as if the job had missed it
+        LocalDate farAhead = YearMonth.now().plusMonths(6).atDay(10);
+
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                "insert into reservation (campsite_id, email, checkin, checkout) values (?, ?, ?, ?)",
+                Campsite.DEFAULT_ID, "ahead@mail.com",
+                Timestamp.valueOf(farAhead.atTime(12, 0)), Timestamp.valueOf(farAhead.plusDays(2).atTime(12, 0))));
+
+        assertThat(jdbcTemplate.queryForObject("select count(*) from reservation_default", Long.class)).isOne();
+
+        partitionMaintenance.maintain();
+
+        String partition = partitionName(YearMonth.from(farAhead));
+
+        assertThat(partitionsOf("public")).contains(partition);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from reservation_default", Long.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("select email from " + partition, String.class)).isEqualTo("ahead@mail.com");
+    }
+
+    @Test
+    @DisplayName("Stays checking in at the end of a month are found by searches of the next one")
+    public void staysAcrossMonthsAreFound() {
+        LocalDate endOfMonth = YearMonth.now().plusMonths(1).atEndOfMonth();
+
+        Reservation reservation = reservationRepository.save(Reservation.builder()
+                .campsiteId(Campsite.DEFAULT_ID)
+                .email("simple@mail.com")
+                .checkin(endOfMonth.atTime(12, 0))
+                .checkout(endOfMonth.plusDays(3).atTime(12, 0))
+                .canceled(false)
+                .build());
+
+        List<Reservation> found = reservationRepository.getReservationsInPeriod(Campsite.DEFAULT_ID, endOfMonth.plusDays(2), endOfMonth.plusDays(5));
+
+        assertThat(found).extracting(Reservation::getId).containsExactly(reservation.getId());
+    }
+
+    private List<String> partitionsOf(String schema) {
+        return jdbcTemplate.queryForList("select tablename from pg_tables where schemaname = ?", String.class, schema);
+    }
+
+    private static String partitionName(YearMonth month) {
+        return "reservation_p%d_%02d".formatted(month.getYear(), month.getMonthValue());
+    }
+}
@@ -1,5 +1,6 @@
 package io.github.edsoncunha.upgrade.takehome.integrationtests;
 
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Campsite;
 import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
 import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationRepository;
 import io.github.edsoncunha.upgrade.takehome.support.PostgresContainerExtension;
@@ -11,10 +12,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -27,6 +31,8 @@ class ReservationRepositoryIT {
 
     @Autowired
     private ReservationRepository reservationRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
     @BeforeEach
     public void setup() {
@@ -47,7 +53,7 @@ class ReservationRepositoryIT {
                         .build()
         );
 
-        List<Reservation> retrieved = reservationRepository.getReservationsInPeriod(beginningOfStay, beginningOfStay);
+        List<Reservation> retrieved = reservationRepository.getReservationsInPeriod(Campsite.DEFAULT_ID, beginningOfStay, beginningOfStay);
         assertThat(retrieved).contains(persisted);
     }
 
@@ -65,7 +71,80 @@ class ReservationRepositoryIT {
                         .build()
         );
 
-        List<Reservation> retrieved = reservationRepository.getReservationsInPeriod(checkoutDate, checkoutDate);
+        List<Reservation> retrieved = reservationRepository.getReservationsInPeriod(Campsite.DEFAULT_ID, checkoutDate, checkoutDate);
         assertThat(retrieved).isEmpty();
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("It should retrieve every active reservation touching the searched period, even partially")
+    public void itShouldRetrieveReservationsOverlappingThePeriod() {
+        LocalDate firstDay = LocalDate.of(2001, 1, 10);
+        LocalDate lastDay = LocalDate.of(2001, 1, 20);
+
+        Reservation endsInside = reservationRepository.save(stay(LocalDate.of(2001, 1, 5), LocalDate.of(2001, 1, 11), false));
+        Reservation inside = reservationRepository.save(stay(LocalDate.of(2001, 1, 12), LocalDate.of(2001, 1, 14), false));
+        Reservation startsOnLastDay = reservationRepository.save(stay(lastDay, LocalDate.of(2001, 1, 25), false));
+        reservationRepository.save(stay(LocalDate.of(2001, 1, 5), firstDay, false));
+        reservationRepository.save(stay(LocalDate.of(2001, 1, 21), LocalDate.of(2001, 1, 22), false));
+        reservationRepository.save(stay(LocalDate.of(2001, 1, 12), LocalDate.of(2001, 1, 14), true));
+
+        List<Reservation> retrieved = reservationRepository.getReservationsInPeriod(Campsite.DEFAULT_ID, firstDay, lastDay);
+
+        assertThat(retrieved).extracting(Reservation::getId)
+                .containsExactlyInAnyOrder(endsInside.getId(), inside.getId(), startsOnLastDay.getId());
+    }
+
+    @Test
+    @DisplayName("It should stream the days of the same stays as the entity query, leaving out the ignored one")
+    public void itShouldStreamStayDaysOverlappingThePeriod() {
+        LocalDate firstDay = LocalDate.of(2001, 1, 10);
+        LocalDate lastDay = LocalDate.of(2001, 1, 20);
+
+        reservationRepository.save(stay(LocalDate.of(2001, 1, 5), LocalDate.of(2001, 1, 11), false));
+        Reservation ignored = reservationRepository.save(stay(LocalDate.of(2001, 1, 12), LocalDate.of(2001, 1, 14), false));
+        reservationRepository.save(stay(lastDay, LocalDate.of(2001, 1, 25), false));
+        reservationRepository.save(stay(LocalDate.of(2001, 1, 5), firstDay, false));
+        reservationRepository.save(stay(LocalDate.of(2001, 1, 15), LocalDate.of(2001, 1, 16), true));
+
+        List<List<LocalDate>> stays = new ArrayList<>();
+        reservationRepository.forEachStayInPeriod(Campsite.DEFAULT_ID, firstDay, lastDay, ignored.getId(),
+                (checkin, checkout) -> stays.add(List.of(LocalDate.ofEpochDay(checkin), LocalDate.ofEpochDay(checkout))));
+
+        assertThat(stays).containsExactlyInAnyOrder(
+                List.of(LocalDate.of(2001, 1, 5), LocalDate.of(2001, 1, 11)),
+                List.of(lastDay, LocalDate.of(2001, 1, 25)));
+    }
+
+    @Test
+    @DisplayName("It should stream a guest's reservations at the campsite after the given id, in id order")
+    public void itShouldStreamReservationsOfGuestAfterId() {
+        Reservation first = reservationRepository.save(stay(LocalDate.of(2001, 1, 5), LocalDate.of(2001, 1, 7), false));
+        Reservation second = reservationRepository.save(stay(LocalDate.of(2003, 6, 1), LocalDate.of(2003, 6, 2), true));
+        Reservation third = reservationRepository.save(stay(LocalDate.of(2002, 3, 1), LocalDate.of(2002, 3, 4), false));
+        Reservation fourth = reservationRepository.save(stay(LocalDate.of(2001, 2, 1), LocalDate.of(2001, 2, 2), false));
+        reservationRepository.save(stay(LocalDate.of(2001, 1, 5), LocalDate.of(2001, 1, 7), false).toBuilder().email("other@mail.com").build());
+
+        List<Long> firstPage = transactionTemplate.execute(status -> {
+            try (Stream<Reservation> reservations = reservationRepository.streamByEmail(Campsite.DEFAULT_ID, "some@mail.com", 0, 2)) {
+                return reservations.map(Reservation::getId).toList();
+            }
+        });
+        List<Long> nextPage = transactionTemplate.execute(status -> {
+            try (Stream<Reservation> reservations = reservationRepository.streamByEmail(Campsite.DEFAULT_ID, "some@mail.com", second.getId(), 2)) {
+                return reservations.map(Reservation::getId).toList();
+            }
+        });
+
+        assertThat(firstPage).containsExactly(first.getId(), second.getId());
+        assertThat(nextPage).containsExactly(third.getId(), fourth.getId());
+    }
+
+    private Reservation stay(LocalDate checkin, LocalDate checkout, boolean canceled) {
+        return Reservation.builder()
+                .email("some@mail.com")
+                .checkin(checkin.atStartOfDay())
+                .checkout(checkout.atStartOfDay())
+                .canceled(canceled)
+                .build();
+    }
+}
@@ -0,0 +1,8 @@
+package io.github.edsoncunha.upgrade.takehome.loadtest;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+// baseline for VirtualThreadsBookingLoadTest: advisory locks polled with backoff, workers on platform threads
+@SpringBootTest(properties = "campsite.concurrencyControl=ADVISORY_LOCK")
+public class AdvisoryLockBookingLoadTest extends BookingLoadTest {
+}
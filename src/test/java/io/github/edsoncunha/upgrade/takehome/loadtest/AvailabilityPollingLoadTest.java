@@ -0,0 +1,217 @@
+package io.github.edsoncunha.upgrade.takehome.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.github.edsoncunha.upgrade.takehome.configuration.ReactiveAvailabilityServer;
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Campsite;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationRepository;
+import io.github.edsoncunha.upgrade.takehome.support.PostgresContainerExtension;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Availability polling against the servlet path (Tomcat + JDBC) and the reactive path (WebFlux + R2DBC) of the same
+ * application, one after the other, with the same number of concurrent clients. Runs with {@code ./gradlew loadTest}.
+ * <p>
+ * Every client is a connection polling in a loop, waiting {@code loadtest.pollIntervalMillis} between searches.
+ * Searches go beyond the bookable horizon, with the availability cache turned off, so both paths read the database
+ * on every search. The report is written to {@code build/reports/loadtest/AvailabilityPollingLoadTest.json}.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "campsite.reactiveAvailability.enabled=true",
+        "campsite.reactiveAvailability.port=0",
+        "campsite.availabilityCache.maximumSize=0"})
+@Testcontainers
+@ExtendWith(PostgresContainerExtension.class)
+@ActiveProfiles("it")
+@DirtiesContext
+@Tag("load")
+public class AvailabilityPollingLoadTest {
+    private static final int HORIZON_IN_DAYS = 30;
+
+    @LocalServerPort
+    private int servletPort;
+    @Autowired
+    private ReactiveAvailabilityServer reactiveServer;
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private Environment environment;
+
+    private final int clients = Integer.getInteger("loadtest.clients", 1000);
+    private final Duration duration = Duration.ofSeconds(Integer.getInteger("loadtest.durationSeconds", 30));
+    private final Duration warmup = Duration.ofSeconds(Integer.getInteger("loadtest.warmupSeconds", 5));
+    private final long pollIntervalMillis = Long.getLong("loadtest.pollIntervalMillis", 0);
+    private final int reservations = Integer.getInteger("loadtest.reservations", 5000);
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    @BeforeEach
+    public void setUp() {
+        reservationRepository.deleteAll();
+
+        // stays spread over the year after the horizon, a few nights each
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                "insert into reservation (campsite_id, email, checkin, checkout) " +
+                        "   select ?, 'guest' || n || '@mail.com', " +
+                        "          current_date + ? + n % 330 + time '12:00', " +
+                        "          current_date + ? + n % 330 + 1 + n % 3 + time '12:00' " +
+                        "   from generate_series(1, ?) n",
+                Campsite.DEFAULT_ID, HORIZON_IN_DAYS + 1, HORIZON_IN_DAYS + 1, reservations));
+    }
+
+    @Test
+    @DisplayName("Availability polling on the servlet and reactive paths")
+    public void availabilityPolling() throws Exception {
+        String servlet = "http://localhost:" + servletPort;
+        String reactive = "http://localhost:" + reactiveServer.port();
+
+        poll(servlet, warmup);
+        poll(reactive, warmup);
+
+        Map<String, PathStats> paths = new LinkedHashMap<>();
+        paths.put("servlet", poll(servlet, duration));
+        paths.put("reactive", poll(reactive, duration));
+
+        writeReport(new PollingReport(getClass().getSimpleName(), configuration(), paths));
+
+        assertThat(paths.values()).allSatisfy(stats -> assertThat(stats.count()).isPositive());
+    }
+
+    private PathStats poll(String baseUrl, Duration duration) throws InterruptedException {
+        Histogram latencies = new ConcurrentHistogram(3);
+        LongAdder errors = new LongAdder();
+        CountDownLatch finished = new CountDownLatch(clients);
+
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+
+        for (int i = 0; i < clients; i++) {
+            pollUntil(baseUrl, deadline, latencies, errors, finished);
+        }
+
+        finished.await();
+
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        long count = latencies.getTotalCount();
+
+        return new PathStats(
+                count,
+                count / elapsedSeconds,
+                latencies.getValueAtPercentile(50),
+                latencies.getValueAtPercentile(99),
+                latencies.getValueAtPercentile(99.9),
+                latencies.getMaxValue(),
+                errors.sum());
+    }
+
+    // each client sends its next search once the previous one is answered, until the deadline
+    private void pollUntil(String baseUrl, long deadline, Histogram latencies, LongAdder errors, CountDownLatch finished) {
+        if (System.nanoTime() >= deadline) {
+            finished.countDown();
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        httpClient.sendAsync(search(baseUrl), HttpResponse.BodyHandlers.discarding())
+                .whenCompleteAsync((response, failure) -> {
+                    if (failure == null && response.statusCode() == 200) {
+                        latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                    } else {
+                        errors.increment();
+                    }
+
+                    pollUntil(baseUrl, deadline, latencies, errors, finished);
+                }, pollInterval());
+    }
+
+    private Executor pollInterval() {
+        return CompletableFuture.delayedExecutor(pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static HttpRequest search(String baseUrl) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate startDate = LocalDate.now().plusDays(HORIZON_IN_DAYS + 1 + random.nextInt(300));
+        LocalDate endDate = startDate.plusDays(random.nextInt(HORIZON_IN_DAYS));
+
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/reservations/availability?startDate=" + startDate + "&endDate=" + endDate))
+                .header("Accept", "application/vnd.campsite.availability.bitmap+json")
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    private Map<String, Object> configuration() {
+        LinkedHashMap<String, Object> configuration = new LinkedHashMap<>();
+        configuration.put("clients", clients);
+        configuration.put("durationSeconds", duration.toSeconds());
+        configuration.put("warmupSeconds", warmup.toSeconds());
+        configuration.put("pollIntervalMillis", pollIntervalMillis);
+        configuration.put("reservations", reservations);
+        configuration.put("virtualThreads", environment.getProperty("campsite.virtualThreads"));
+        configuration.put("poolSize", environment.getProperty("spring.datasource.hikari.maximum-pool-size"));
+        configuration.put("reactiveMaxConnections", environment.getProperty("campsite.reactiveAvailability.maxConnections"));
+        return configuration;
+    }
+
+    private void writeReport(PollingReport report) throws IOException {
+        File file = new File(System.getProperty("loadtest.reportDir", "build/reports/loadtest"), report.scenario() + ".json");
+        file.getParentFile().mkdirs();
+
+        new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(file, report);
+
+        System.out.println("Load test report written to " + file.getAbsolutePath());
+    }
+
+    /**
+     * Latencies are in microseconds. Errors are failed connections, timeouts and responses other than 200.
+     */
+    public record PollingReport(String scenario, Map<String, Object> configuration, Map<String, PathStats> paths) {
+    }
+
+    public record PathStats(long count, double throughputPerSecond, long p50, long p99, long p999, long max, long errors) {
+    }
+}
@@ -0,0 +1,218 @@
+package io.github.edsoncunha.upgrade.takehome.loadtest;
+
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Campsite;
+import io.github.edsoncunha.upgrade.takehome.domain.entities.Reservation;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.LockNotAcquiredException;
+import io.github.edsoncunha.upgrade.takehome.domain.exceptions.NoPlacesAvailableException;
+import io.github.edsoncunha.upgrade.takehome.domain.services.ReservationService;
+import io.github.edsoncunha.upgrade.takehome.loadtest.LoadTestSettings.Operation;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Drives a weighted mix of reserve, update, cancel and availability calls against {@link ReservationService} from
+ * a fixed number of workers, recording the latency of every call.
+ */
+public class BookingLoadHarness {
+    private static final int MAX_LENGTH_OF_STAY = 3;
+
+    private final ReservationService reservationService;
+    private final Booking booking;
+    private final LoadTestSettings settings;
+    private final LongSupplier lockRetries;
+    private final ExecutorService executor;
+
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> noPlacesAvailable = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> lockNotAcquired = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> otherErrors = new EnumMap<>(Operation.class);
+    private final ReservationPool reservations = new ReservationPool();
+
+    /**
+     * @param booking  makes the RESERVE calls, e.g. {@code reservationService::reserve}
+     * @param executor runs the {@code settings.threads()} workers. It is shut down at the end of the run
+     */
+    public BookingLoadHarness(ReservationService reservationService, Booking booking, LoadTestSettings settings, LongSupplier lockRetries, ExecutorService executor) {
+        this.reservationService = reservationService;
+        this.booking = booking;
+        this.settings = settings;
+        this.lockRetries = lockRetries;
+        this.executor = executor;
+
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new ConcurrentHistogram(3));
+            noPlacesAvailable.put(operation, new LongAdder());
+            lockNotAcquired.put(operation, new LongAdder());
+            otherErrors.put(operation, new LongAdder());
+        }
+    }
+
+    public LoadReport run(String scenario, Map<String, Object> configuration) throws InterruptedException {
+        long lockRetriesBefore = lockRetries.getAsLong();
+
+        long start = System.nanoTime();
+        long deadline = start + settings.duration().toNanos();
+
+        for (int i = 0; i < settings.threads(); i++) {
+            executor.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    execute(pickOperation());
+                }
+            });
+        }
+
+        executor.shutdown();
+        if (!executor.awaitTermination(settings.duration().toSeconds() + 60, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        return report(scenario, configuration, elapsedSeconds, lockRetries.getAsLong() - lockRetriesBefore);
+    }
+
+    private void execute(Operation operation) {
+        long start = System.nanoTime();
+
+        try {
+            switch (operation) {
+                case RESERVE -> reserve();
+                case UPDATE -> update();
+                case CANCEL -> cancel();
+                case AVAILABILITY -> searchAvailability();
+            }
+        } catch (NoPlacesAvailableException e) {
+            noPlacesAvailable.get(operation).increment();
+        } catch (LockNotAcquiredException e) {
+            lockNotAcquired.get(operation).increment();
+        } catch (RuntimeException e) {
+            otherErrors.get(operation).increment();
+        } finally {
+            latencies.get(operation).recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        }
+    }
+
+    private void reserve() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Reservation reservation = booking.reserve(Campsite.DEFAULT_ID, "guest" + random.nextInt(10_000) + "@mail.com", randomArrivalDate(), randomLengthOfStay());
+        reservations.add(reservation.getId());
+    }
+
+    private void update() {
+        long id = reservations.pick();
+        if (id > 0) {
+            reservationService.updateReservation(Campsite.DEFAULT_ID, id, randomArrivalDate(), randomLengthOfStay());
+        }
+    }
+
+    private void cancel() {
+        long id = reservations.take();
+        if (id > 0) {
+            reservationService.cancelReservation(Campsite.DEFAULT_ID, id);
+        }
+    }
+
+    private void searchAvailability() {
+        LocalDate firstDay = randomArrivalDate();
+        reservationService.getAvailability(Campsite.DEFAULT_ID, firstDay, firstDay.plusDays(ThreadLocalRandom.current().nextInt(settings.spreadInDays())));
+    }
+
+    private LocalDate randomArrivalDate() {
+        return LocalDate.now().plusDays(1 + ThreadLocalRandom.current().nextInt(settings.spreadInDays()));
+    }
+
+    private int randomLengthOfStay() {
+        return 1 + ThreadLocalRandom.current().nextInt(MAX_LENGTH_OF_STAY);
+    }
+
+    private Operation pickOperation() {
+        int totalWeight = settings.mix().values().stream().mapToInt(Integer::intValue).sum();
+        int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+
+        for (Map.Entry<Operation, Integer> weight : settings.mix().entrySet()) {
+            pick -= weight.getValue();
+            if (pick < 0) {
+                return weight.getKey();
+            }
+        }
+
+        throw new IllegalStateException("Empty operation mix");
+    }
+
+    private LoadReport report(String scenario, Map<String, Object> configuration, double elapsedSeconds, long retries) {
+        EnumMap<Operation, LoadReport.OperationStats> operations = new EnumMap<>(Operation.class);
+        long totalCount = 0;
+
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = latencies.get(operation);
+            long count = histogram.getTotalCount();
+            totalCount += count;
+
+            operations.put(operation, new LoadReport.OperationStats(
+                    count,
+                    count / elapsedSeconds,
+                    histogram.getValueAtPercentile(50),
+                    histogram.getValueAtPercentile(99),
+                    histogram.getValueAtPercentile(99.9),
+                    histogram.getMaxValue(),
+                    noPlacesAvailable.get(operation).sum(),
+                    lockNotAcquired.get(operation).sum(),
+                    otherErrors.get(operation).sum()));
+        }
+
+        long bookingAttempts = operations.get(Operation.RESERVE).count() + operations.get(Operation.UPDATE).count();
+        long bookingsRefused = noPlacesAvailable.get(Operation.RESERVE).sum() + noPlacesAvailable.get(Operation.UPDATE).sum();
+
+        return new LoadReport(
+                scenario,
+                configuration,
+                elapsedSeconds,
+                totalCount / elapsedSeconds,
+                retries,
+                bookingAttempts == 0 ? 0 : (double) bookingsRefused / bookingAttempts,
+                operations);
+    }
+
+    @FunctionalInterface
+    public interface Booking {
+        Reservation reserve(long campsiteId, String userEmail, LocalDate arrivalDate, int lengthOfStay);
+    }
+
+    /**
+     * Ids of the reservations created by the run, which updates and cancellations pick from.
+     */
+    private static class ReservationPool {
+        private final ArrayList<Long> ids = new ArrayList<>();
+
+        synchronized void add(long id) {
+            ids.add(id);
+        }
+
+        synchronized long pick() {
+            return ids.isEmpty() ? -1 : ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        }
+
+        synchronized long take() {
+            if (ids.isEmpty()) {
+                return -1;
+            }
+
+            int index = ThreadLocalRandom.current().nextInt(ids.size());
+            long id = ids.get(index);
+            // swap with the last one, so removal doesn't shift the list
+            ids.set(index, ids.get(ids.size() - 1));
+            ids.remove(ids.size() - 1);
+            return id;
+        }
+    }
+}
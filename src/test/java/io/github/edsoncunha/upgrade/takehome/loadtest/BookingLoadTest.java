@@ -0,0 +1,131 @@
+package io.github.edsoncunha.upgrade.takehome.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.github.edsoncunha.upgrade.takehome.domain.repositories.ReservationRepository;
+import io.github.edsoncunha.upgrade.takehome.domain.services.PostgresLockManager;
+import io.github.edsoncunha.upgrade.takehome.domain.services.ReservationService;
+import io.github.edsoncunha.upgrade.takehome.support.PostgresContainerExtension;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Load harness for the booking paths. Excluded from {@code ./gradlew test}, it runs with {@code ./gradlew loadTest}.
+ * <p>
+ * The report is written to {@code build/reports/loadtest/<scenario>.json}, so runs with different locking
+ * strategies or pool sizes (e.g. {@code -Dcampsite.concurrencyControl=ADVISORY_LOCK} or
+ * {@code -Dspring.datasource.hikari.maximum-pool-size=50}) can be compared on the same workload.
+ */
+@SpringBootTest
+@Testcontainers
+@ExtendWith(PostgresContainerExtension.class)
+@ActiveProfiles("it")
+@DirtiesContext
+@Tag("load")
+public class BookingLoadTest {
+    @Autowired
+    protected ReservationService reservationService;
+    @Autowired
+    private ReservationRepository reservationRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private Environment environment;
+
+    @BeforeEach
+    public void setUp() {
+        reservationRepository.deleteAll();
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update("delete from daily_occupancy"));
+    }
+
+    @Test
+    @DisplayName("Concurrent bookings never overbook a night")
+    public void bookingWorkload() throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        reservationService.setCapacity(settings.capacity());
+
+        LoadReport report = new BookingLoadHarness(reservationService, booking(), settings, this::lockRetries, workers(settings.threads()))
+                .run(scenario(), configuration(settings));
+
+        writeReport(report);
+
+        assertThat(overbookedNights(settings.capacity())).isZero();
+    }
+
+    protected String scenario() {
+        return getClass().getSimpleName();
+    }
+
+    protected BookingLoadHarness.Booking booking() {
+        return reservationService::reserve;
+    }
+
+    protected ExecutorService workers(int threads) {
+        return Executors.newFixedThreadPool(threads);
+    }
+
+    private Map<String, Object> configuration(LoadTestSettings settings) {
+        LinkedHashMap<String, Object> configuration = new LinkedHashMap<>();
+        configuration.put("threads", settings.threads());
+        configuration.put("durationSeconds", settings.duration().toSeconds());
+        configuration.put("mix", settings.mix());
+        configuration.put("spreadInDays", settings.spreadInDays());
+        configuration.put("capacity", settings.capacity());
+        configuration.put("concurrencyControl", environment.getProperty("campsite.concurrencyControl"));
+        configuration.put("virtualThreads", environment.getProperty("campsite.virtualThreads"));
+        configuration.put("sequencer", environment.getProperty("campsite.sequencer.enabled"));
+        configuration.put("poolSize", environment.getProperty("spring.datasource.hikari.maximum-pool-size"));
+        return configuration;
+    }
+
+    private long lockRetries() {
+        return (long) meterRegistry.counter(PostgresLockManager.ATTEMPTS_METRIC, "result", "busy").count();
+    }
+
+    private long overbookedNights(int capacity) {
+        return jdbcTemplate.queryForObject("select count(*) from (" +
+                "           select checkin::date + night " +
+                "               from reservation, generate_series(0, checkout::date - checkin::date - 1) night " +
+                "               where canceled = false " +
+                "               group by campsite_id, checkin::date + night " +
+                "               having count(*) > ?) overbooked", Long.class, capacity);
+    }
+
+    private void writeReport(LoadReport report) throws IOException {
+        File file = new File(System.getProperty("loadtest.reportDir", "build/reports/loadtest"), scenario() + ".json");
+        file.getParentFile().mkdirs();
+
+        new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(file, report);
+
+        System.out.println("Load test report written to " + file.getAbsolutePath());
+    }
+}
@@ -0,0 +1,26 @@
+package io.github.edsoncunha.upgrade.takehome.loadtest;
+
+import java.util.Map;
+
+/**
+ * Outcome of a load test run, serialized as JSON. Latencies are in microseconds.
+ */
+public record LoadReport(String scenario,
+                         Map<String, Object> configuration,
+                         double elapsedSeconds,
+                         double throughputPerSecond,
+                         long lockRetries,
+                         double noPlacesAvailableRate,
+                         Map<LoadTestSettings.Operation, OperationStats> operations) {
+
+    public record OperationStats(long count,
+                                 double throughputPerSecond,
+                                 long p50,
+                                 long p99,
+                                 long p999,
+                                 long max,
+                                 long noPlacesAvailable,
+                                 long lockNotAcquired,
+                                 long otherErrors) {
+    }
+}
@@ -0,0 +1,39 @@
+package io.github.edsoncunha.upgrade.takehome.loadtest;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Workload of a load test run, read from {@code loadtest.*} system properties.
+ *
+ * @param mix          relative weight of each operation, e.g. {@code reserve=40,update=10,cancel=10,availability=40}
+ * @param spreadInDays arrival dates are picked among the next {@code spreadInDays} days (at most 30, as allowed by the rules)
+ */
+public record LoadTestSettings(int threads, Duration duration, Map<Operation, Integer> mix, int spreadInDays, int capacity) {
+
+    public static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(
+                Integer.getInteger("loadtest.threads", 50),
+                Duration.ofSeconds(Integer.getInteger("loadtest.durationSeconds", 30)),
+                parseMix(System.getProperty("loadtest.mix", "reserve=40,update=10,cancel=10,availability=40")),
+                Math.min(Integer.getInteger("loadtest.spreadInDays", 30), 30),
+                Integer.getInteger("loadtest.capacity", 30)
+        );
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        EnumMap<Operation, Integer> weights = new EnumMap<>(Operation.class);
+
+        for (String entry : mix.split(",")) {
+            String[] weight = entry.trim().split("=");
+            weights.put(Operation.valueOf(weight[0].trim().toUpperCase()), Integer.parseInt(weight[1].trim()));
+        }
+
+        return weights;
+    }
+
+    public enum Operation {
+        RESERVE, UPDATE, CANCEL, AVAILABILITY
+    }
+}
@@ -0,0 +1,21 @@
+package io.github.edsoncunha.upgrade.takehome.loadtest;
+
+import io.github.edsoncunha.upgrade.takehome.domain.services.ReservationSequencer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Same workload as {@link AdvisoryLockBookingLoadTest}, with reservations booked in batches by the
+ * {@link ReservationSequencer} instead of each worker taking the locks itself. Comparing both reports shows the
+ * throughput gained by turning lock contention into a queue.
+ */
+@SpringBootTest(properties = {"campsite.concurrencyControl=ADVISORY_LOCK", "campsite.sequencer.enabled=true"})
+public class SequencerBookingLoadTest extends BookingLoadTest {
+    @Autowired
+    private ReservationSequencer reservationSequencer;
+
+    @Override
+    protected BookingLoadHarness.Booking booking() {
+        return reservationSequencer::reserve;
+    }
+}
@@ -0,0 +1,19 @@
+package io.github.edsoncunha.upgrade.takehome.loadtest;
+
+import io.github.edsoncunha.upgrade.takehome.support.VirtualThreads;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Same workload as {@link AdvisoryLockBookingLoadTest}, with every worker on its own virtual thread and the lock
+ * manager blocking on {@code pg_advisory_xact_lock}. Comparing both reports shows what each mode costs under contention.
+ */
+@SpringBootTest(properties = {"campsite.concurrencyControl=ADVISORY_LOCK", "campsite.virtualThreads=true"})
+public class VirtualThreadsBookingLoadTest extends BookingLoadTest {
+
+    @Override
+    protected ExecutorService workers(int threads) {
+        return VirtualThreads.newVirtualThreadPerTaskExecutor();
+    }
+}